@@ -1,10 +1,18 @@
 package pl.polinc.dummycastle;
 
 import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import pl.polinc.dummycastle.coding.Coder;
 import pl.polinc.dummycastle.crypt.asymm.CryptAsymm;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmBatch;
 import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKey;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeyPool;
 import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys;
 import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeysPair;
 import pl.polinc.dummycastle.crypt.asymm.CryptAsymmPrivateKey;
@@ -220,7 +228,8 @@ public class DummyCastle {
 
 	/**
 	 * Generates a key based on provided seed data for the purpose of symmetric
-	 * encryption.
+	 * encryption. Keys generated from the same seed recently are taken from a
+	 * cache - see CryptSymmKey.getCache().
 	 * 
 	 * @param keySeed any kind of string data that will be used to generated the
 	 *                key. The same seed would provide the same key.
@@ -235,7 +244,7 @@ public class DummyCastle {
 		}
 
 		try {
-			cryptSymmKey = new CryptSymmKey(keySeed);
+			cryptSymmKey = CryptSymmKey.createFromString(keySeed);
 		} catch (Exception e) {
 			exception = e;
 			error = true;
@@ -275,6 +284,35 @@ public class DummyCastle {
 		return this;
 	}
 
+	/**
+	 * Encrypts provided text for many recipients at once. The text is encrypted
+	 * once and only its session key is encrypted with every key, so the result is
+	 * much smaller and faster to make than one result per recipient. Every
+	 * recipient decrypts it with decryptAsymmWith() and the private key of its own
+	 * pair. The result may be obtained using getResult() method and it is not
+	 * encoded.
+	 * 
+	 * @param plainText to encrypt.
+	 * @param keys      public keys of the recipients.
+	 * @return this object for chaining.
+	 */
+	public DummyCastle encryptAsymmWith(String plainText, List<? extends CryptAsymmKey> keys) {
+
+		if (plainText == null || plainText.isEmpty() || keys == null || keys.isEmpty() || keys.contains(null)) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return this;
+		}
+
+		try {
+			resultBytes = CryptAsymm.encryptStream(plainText.getBytes(), keys);
+		} catch (Exception e) {
+			setUpError(e);
+		}
+
+		return this;
+	}
+
 	/**
 	 * Encrypts data internally using asymmetric encryption. The result may be
 	 * obtained using getResult() method and it is not encoded. Use decryptSymm() to
@@ -355,6 +393,231 @@ public class DummyCastle {
 		return this;
 	}
 
+	/* SIGN */
+	/**
+	 * Signs provided text with a private key. The signature may be obtained using
+	 * getResult() method. Use verifyWith() to check it.
+	 * 
+	 * @param plainText to sign.
+	 * @param key       private key to sign with.
+	 * @return this object for chaining.
+	 */
+	public DummyCastle signWith(String plainText, CryptAsymmPrivateKey key) {
+
+		if (plainText == null || plainText.isEmpty() || key == null) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return this;
+		}
+
+		try {
+			resultBytes = CryptAsymm.sign(plainText.getBytes(), key);
+		} catch (Exception e) {
+			setUpError(e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Signs data internally with a private key. The signature replaces the data
+	 * and may be obtained using getResult() method.
+	 * 
+	 * @param key private key to sign with.
+	 * @return this object for chaining.
+	 */
+	public DummyCastle sign(CryptAsymmPrivateKey key) {
+
+		if (resultBytes == null || resultBytes.length == 0 || key == null) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return this;
+		}
+
+		try {
+			resultBytes = CryptAsymm.sign(resultBytes, key);
+		} catch (Exception e) {
+			setUpError(e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Checks the signature of provided text. If it matches, the text becomes the
+	 * data of this object, so that it may be processed further. Otherwise the
+	 * error flag is set with a SignatureException and the data is cleared.
+	 * 
+	 * @param plainText signed text.
+	 * @param signature signature of the text as returned by getResult().
+	 * @param key       public key of the pair that signed the text.
+	 * @return this object for chaining.
+	 */
+	public DummyCastle verifyWith(String plainText, String signature, CryptAsymmPublicKey key) {
+
+		if (plainText == null || plainText.isEmpty() || signature == null || signature.isEmpty() || key == null) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return this;
+		}
+
+		resultBytes = plainText.getBytes();
+		return verify(signature, key);
+	}
+
+	/**
+	 * Checks the signature of data internally. If it matches, the data is left as
+	 * it is. Otherwise the error flag is set with a SignatureException and the
+	 * data is cleared.
+	 * 
+	 * @param signature signature of the data as returned by getResult().
+	 * @param key       public key of the pair that signed the data.
+	 * @return this object for chaining.
+	 */
+	public DummyCastle verify(String signature, CryptAsymmPublicKey key) {
+
+		if (resultBytes == null || resultBytes.length == 0 || signature == null || signature.isEmpty()
+				|| key == null) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return this;
+		}
+
+		try {
+			if (!CryptAsymm.verify(resultBytes, Coder.decode(signature.getBytes()), key))
+				setUpError(new SignatureException("Signature does not match"));
+		} catch (Exception e) {
+			setUpError(e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Encrypts a batch of plain texts using asymmetric encryption, spreading them
+	 * over the common ForkJoinPool. Every text gets its own DummyCastle object
+	 * holding its result or its error - check isError() of each of them. The
+	 * error of this object is set only if the arguments are wrong.
+	 * 
+	 * @param plainTexts texts to encrypt.
+	 * @param key        contains data used to encrypt plain texts.
+	 * @return results in the order of the texts.
+	 */
+	public List<DummyCastle> encryptAsymmBatchWith(List<String> plainTexts, CryptAsymmKey key) {
+		return encryptAsymmBatchWith(plainTexts, key, ForkJoinPool.commonPool(),
+				ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
+
+	/**
+	 * Encrypts a batch of plain texts using asymmetric encryption, spreading them
+	 * over an executor. Every text gets its own DummyCastle object holding its
+	 * result or its error - check isError() of each of them. The error of this
+	 * object is set only if the arguments are wrong.
+	 * 
+	 * @param plainTexts  texts to encrypt.
+	 * @param key         contains data used to encrypt plain texts.
+	 * @param executor    executor to run on, e.g. a ForkJoinPool or an executor of
+	 *                    virtual threads.
+	 * @param parallelism number of texts encrypted at the same time, including the
+	 *                    one on the calling thread.
+	 * @return results in the order of the texts.
+	 */
+	public List<DummyCastle> encryptAsymmBatchWith(List<String> plainTexts, CryptAsymmKey key, Executor executor,
+			int parallelism) {
+
+		if (plainTexts == null || key == null || executor == null) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return new ArrayList<DummyCastle>();
+		}
+
+		List<byte[]> items = new ArrayList<byte[]>(plainTexts.size());
+		for (String plainText : plainTexts)
+			items.add(plainText == null || plainText.isEmpty() ? null : plainText.getBytes());
+		try {
+			return toBatchResults(items, CryptAsymm.encryptBatch(items, key, executor, parallelism));
+		} catch (Exception e) {
+			setUpError(e);
+		}
+		return new ArrayList<DummyCastle>();
+	}
+
+	/**
+	 * Decrypts a batch of texts using asymmetric encryption, spreading them over
+	 * the common ForkJoinPool. Every text gets its own DummyCastle object holding
+	 * its result or its error - check isError() of each of them. The error of this
+	 * object is set only if the arguments are wrong.
+	 * 
+	 * @param secretTexts texts to decrypt.
+	 * @param key         contains data used to decrypt the texts.
+	 * @return results in the order of the texts.
+	 */
+	public List<DummyCastle> decryptAsymmBatchWith(List<String> secretTexts, CryptAsymmKey key) {
+		return decryptAsymmBatchWith(secretTexts, key, ForkJoinPool.commonPool(),
+				ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
+
+	/**
+	 * Decrypts a batch of texts using asymmetric encryption, spreading them over
+	 * an executor. Every text gets its own DummyCastle object holding its result or
+	 * its error - check isError() of each of them. The error of this object is set
+	 * only if the arguments are wrong.
+	 * 
+	 * @param secretTexts texts to decrypt.
+	 * @param key         contains data used to decrypt the texts.
+	 * @param executor    executor to run on, e.g. a ForkJoinPool or an executor of
+	 *                    virtual threads.
+	 * @param parallelism number of texts decrypted at the same time, including the
+	 *                    one on the calling thread.
+	 * @return results in the order of the texts.
+	 */
+	public List<DummyCastle> decryptAsymmBatchWith(List<String> secretTexts, CryptAsymmKey key, Executor executor,
+			int parallelism) {
+
+		if (secretTexts == null || key == null || executor == null) {
+			exception = new IllegalArgumentException("Empty or null argument");
+			error = true;
+			return new ArrayList<DummyCastle>();
+		}
+
+		// Decoding is cheap next to modPow, so it is done here. Texts that do not
+		// decode are passed on as null and fail in the batch
+		List<byte[]> items = new ArrayList<byte[]>(secretTexts.size());
+		for (String secretText : secretTexts) {
+			byte[] item = null;
+			if (secretText != null && !secretText.isEmpty()) {
+				try {
+					item = Coder.decodeHex(secretText.getBytes());
+				} catch (Exception e) {
+					item = null;
+				}
+			}
+			items.add(item);
+		}
+		try {
+			return toBatchResults(items, CryptAsymm.decryptBatch(items, key, executor, parallelism));
+		} catch (Exception e) {
+			setUpError(e);
+		}
+		return new ArrayList<DummyCastle>();
+	}
+
+	private static List<DummyCastle> toBatchResults(List<byte[]> items, CryptAsymmBatch batch) {
+		List<DummyCastle> results = new ArrayList<DummyCastle>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			DummyCastle result = new DummyCastle();
+			if (items.get(i) == null) {
+				result.exception = new IllegalArgumentException("Empty, null or malformed argument");
+				result.error = true;
+			} else if (batch.isError(i))
+				result.setUpError(batch.getException(i));
+			else
+				result.resultBytes = batch.getResult(i);
+			results.add(result);
+		}
+		return results;
+	}
+
 	/* ASYM KEY */
 	/**
 	 * Generates a pair of keys for the purpose of asymmetric encryption.
@@ -391,7 +654,7 @@ public class DummyCastle {
 	public CryptAsymmKeysPair genAsymmKeysWithKeySizeType(KEY_SIZE_TYPE keySizeType) {
 
 		try {
-			return new CryptAsymmKeys().generateKeys();
+			return new CryptAsymmKeys(keySizeType).generateKeys();
 		} catch (Exception e) {
 			exception = e;
 			error = true;
@@ -402,6 +665,46 @@ public class DummyCastle {
 
 	}
 
+	/**
+	 * Takes a pair of keys for the purpose of asymmetric encryption of the
+	 * specified size from a pool of pairs generated in advance. If the pool is
+	 * empty, the pair is generated at once.
+	 * 
+	 * @param pool        pool to take the keys from.
+	 * @param keySizeType size of the keys. Must be one of
+	 *                    CryptAsymmKeys.KEY_SIZE_TYPE constants.
+	 * @return CryptAsymmKeysPair object containing asymmetric keys data, both
+	 *         public and private, or null if the pool cannot hand out keys, for
+	 *         example when it is closed. Check isError() then.
+	 */
+	public CryptAsymmKeysPair genAsymmKeysWithPool(CryptAsymmKeyPool pool, KEY_SIZE_TYPE keySizeType) {
+
+		try {
+			return pool.take(keySizeType);
+		} catch (Exception e) {
+			setUpError(e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Generates a pair of keys for the purpose of asymmetric encryption of the
+	 * specified size in the background. Both primes of the keys are searched for
+	 * concurrently, so the calling thread is not blocked. Errors are reported by
+	 * the future and not by isError().
+	 * 
+	 * @param keySizeType size of the keys. Must be one of
+	 *                    CryptAsymmKeys.KEY_SIZE_TYPE constants.
+	 * @return future of a CryptAsymmKeysPair object containing asymmetric keys
+	 *         data, both public and private. It may be cancelled or given a
+	 *         timeout with orTimeout().
+	 */
+	public CompletableFuture<CryptAsymmKeysPair> genAsymmKeysAsyncWithKeySizeType(KEY_SIZE_TYPE keySizeType) {
+
+		return new CryptAsymmKeys(keySizeType).generateKeysAsync();
+	}
+
 	/**
 	 * Generates a public key for the purpose of asymmetric encryption.
 	 * 
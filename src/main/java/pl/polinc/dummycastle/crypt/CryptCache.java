@@ -0,0 +1,204 @@
+package pl.polinc.dummycastle.crypt;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded map shared by the caches of keys of the library. Entries are evicted
+ * when the map is full - the least recently used first - and when they get
+ * older than the time to live. Entries are also kept in the order they were
+ * put in, so all expired ones are found at once, even if some of them were
+ * used recently. The map is thread safe. Values are created by the callers
+ * outside of its lock.
+ *
+ * @param <K> type of the identifiers of entries.
+ * @param <V> type of the values.
+ */
+public final class CryptCache<K, V> {
+
+	private int maxSize;
+	private long ttlNanos;
+	private final LinkedHashMap<K, Entry<K, V>> entries = new LinkedHashMap<K, Entry<K, V>>(16, 0.75f, true);
+	// Oldest and youngest entry - entries are linked in the order they were put
+	private Entry<K, V> oldest;
+	private Entry<K, V> youngest;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	// Evictions not taken by takeEvicted() yet
+	private int evicted;
+
+	/**
+	 * Creates a map with specific limits.
+	 *
+	 * @param maxSize maximal number of entries. 0 turns caching off.
+	 * @param ttl     time to live of an entry in milliseconds. Long.MAX_VALUE
+	 *                for no limit.
+	 */
+	public CryptCache(int maxSize, long ttl) {
+		configure(maxSize, ttl);
+	}
+
+	/**
+	 * Changes limits of the map. Entries over the new limits are evicted.
+	 *
+	 * @param maxSize maximal number of entries. 0 turns caching off.
+	 * @param ttl     time to live of an entry in milliseconds. Long.MAX_VALUE
+	 *                for no limit.
+	 */
+	public synchronized void configure(int maxSize, long ttl) {
+		if (maxSize < 0 || ttl < 0)
+			throw new IllegalArgumentException("<0 argument");
+		this.maxSize = maxSize;
+		this.ttlNanos = ttl >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : ttl * 1000000;
+		evict(System.nanoTime());
+	}
+
+	/**
+	 * Retrieves the value of an entry and counts a hit or a miss.
+	 *
+	 * @param id identifier of the entry.
+	 * @return the value or null if there is no such entry or it has expired.
+	 */
+	public synchronized V get(K id) {
+		Entry<K, V> entry = entries.get(id);
+		if (entry != null && System.nanoTime() - entry.created > ttlNanos) {
+			remove(entry);
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value;
+	}
+
+	/**
+	 * Puts an entry, replacing an entry with the same identifier, and evicts
+	 * entries over the limits.
+	 *
+	 * @param id    identifier of the entry.
+	 * @param value the value.
+	 */
+	public synchronized void put(K id, V value) {
+		if (maxSize == 0)
+			return;
+		long now = System.nanoTime();
+		Entry<K, V> entry = new Entry<K, V>(id, value, now);
+		Entry<K, V> replaced = entries.put(id, entry);
+		if (replaced != null)
+			unlink(replaced);
+		entry.previous = youngest;
+		if (youngest != null)
+			youngest.next = entry;
+		else
+			oldest = entry;
+		youngest = entry;
+		evict(now);
+	}
+
+	/**
+	 * Removes all entries. Statistics are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		oldest = youngest = null;
+	}
+
+	/**
+	 * Returns the number of entries evicted since the previous call, e.g. to
+	 * report them to a listener outside of the lock.
+	 *
+	 * @return number of evicted entries.
+	 */
+	public synchronized int takeEvicted() {
+		int count = evicted;
+		evicted = 0;
+		return count;
+	}
+
+	/**
+	 * @return number of entries at the moment, including expired ones not
+	 *         evicted yet.
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * @return number of lookups that found an entry.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups that found no entry.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of entries removed because of the size or time limit.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized String toString() {
+		return "size=" + entries.size() + " hits=" + hits + " misses=" + misses + " evictions=" + evictions;
+	}
+
+	// Expired entries go first, so that no live entry is evicted for the size
+	// while an expired one stays
+	private void evict(long now) {
+		// The oldest entries come first, wherever they are in the LRU order
+		while (oldest != null && now - oldest.created > ttlNanos)
+			remove(oldest);
+		// The least recently used entries come first
+		Iterator<Entry<K, V>> it = entries.values().iterator();
+		while (entries.size() > maxSize) {
+			Entry<K, V> entry = it.next();
+			it.remove();
+			unlink(entry);
+			evictions++;
+			evicted++;
+		}
+	}
+
+	private void remove(Entry<K, V> entry) {
+		entries.remove(entry.id);
+		unlink(entry);
+		evictions++;
+		evicted++;
+	}
+
+	private void unlink(Entry<K, V> entry) {
+		if (entry.previous != null)
+			entry.previous.next = entry.next;
+		else
+			oldest = entry.next;
+		if (entry.next != null)
+			entry.next.previous = entry.previous;
+		else
+			youngest = entry.previous;
+		entry.previous = entry.next = null;
+	}
+
+	private static class Entry<K, V> {
+		final K id;
+		final V value;
+		final long created;
+		Entry<K, V> previous;
+		Entry<K, V> next;
+
+		Entry(K id, V value, long created) {
+			this.id = id;
+			this.value = value;
+			this.created = created;
+		}
+	}
+}
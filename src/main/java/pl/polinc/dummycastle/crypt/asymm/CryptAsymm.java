@@ -1,16 +1,51 @@
 package pl.polinc.dummycastle.crypt.asymm;
 
 import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import pl.polinc.dummycastle.coding.Coder;
 import pl.polinc.dummycastle.coding.Hex;
 import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+import pl.polinc.dummycastle.hash.HasherClient;
 import pl.polinc.dummycastle.random.RandomClient;
 
 public class CryptAsymm {
 
+	/**
+	 * Ways of computing the modPow of keys. MODPOW_BIGINTEGER uses
+	 * BigInteger.modPow(), which HotSpot backs with native Montgomery
+	 * multiplication on common platforms. MODPOW_MONTGOMERY uses a Java engine
+	 * with constants cached in every key, which is faster on JVMs without those
+	 * intrinsics.
+	 */
+	public static enum MODPOW_TYPE {
+		MODPOW_BIGINTEGER, MODPOW_MONTGOMERY
+	}
+
+	private static volatile MODPOW_TYPE modPowType = MODPOW_TYPE.MODPOW_BIGINTEGER;
+
+	// Envelope versions. The first byte of an envelope is its version. The first
+	// version stored the gem as decimal text after its 4-byte length, which in
+	// practice always starts with a zero byte
+	static final byte ENVELOPE_DECIMAL = 0;
+	static final byte ENVELOPE_BINARY = 1;
+	// Envelopes of CryptAsymmSender, referring to a session key by its id
+	static final byte ENVELOPE_SESSION = 2;
+	// Envelopes for many recipients, with one slot per recipient key
+	static final byte ENVELOPE_MULTI = 3;
+
+	private static volatile CryptAsymmGemCache gemCache;
+
 	// Encrypt
+	// Envelope: version byte, varint length of the gem, gem as a big-endian
+	// magnitude as wide as the product of the key, data
 	public static byte[] encryptStream(byte[] plainData, CryptAsymmKey key) {
 
 		int keySize = key.getKeySize() / 8;
@@ -19,57 +54,392 @@ public class CryptAsymm {
 		// prepare
 		String symmKey = RandomClient.generateRandomString(keySize, RandomClient.Mode.ALPHANUMERIC, false);
 		BigInteger gemStr = new BigInteger(symmKey.getBytes());
-		BigInteger enc = gemStr.modPow(key.getExponent(), key.getProduct());
-		byte[] gem = enc.toString().getBytes();
+		BigInteger enc = key.modPow(gemStr);
+		//
+		int gemLen = gemSize(key);
+		int dataOff = headerSize(gemLen);
+		// Header, gem and data go straight into the one envelope array
+		byte[] encryptedDataWithGem = new byte[dataOff + plainData.length];
+		putHeader(encryptedDataWithGem, gemLen, enc);
 		//
 		CryptAsymmClient cryptClient = new CryptAsymmClient(new CryptSymmKey(symmKey));
+		cryptClient.crypt(plainData, 0, plainData.length, encryptedDataWithGem, dataOff, 0);
+
 		//
-		byte[] encryptedData = cryptClient.encrypt(plainData);
-		int gemLen = gem.length;
-		byte[] encryptedDataWithGem = new byte[gemLen + 4 + encryptedData.length];
-		byte[] gemLenBytes = intToByteArray(gemLen);
-		for (int a = 0; a < 4; a++)
-			encryptedDataWithGem[a] = gemLenBytes[a];
+		return encryptedDataWithGem;
+	}
 
-		for (int a = 0; a < gemLen; a++)
-			encryptedDataWithGem[a + 4] = gem[a];
+	/**
+	 * Encrypts data for many recipients on the common ForkJoinPool. See
+	 * encryptStream(byte[], List, Executor, int).
+	 * 
+	 * @param plainData data to encrypt.
+	 * @param keys      keys of the recipients.
+	 * @return the envelope.
+	 */
+	public static byte[] encryptStream(byte[] plainData, List<? extends CryptAsymmKey> keys) {
+		return encryptStream(plainData, keys, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
 
-		for (int a = gemLen + 4, b = 0; a < gemLen + 4 + encryptedData.length; a++, b++)
-			encryptedDataWithGem[a] = encryptedData[b];
+	/**
+	 * Encrypts data for many recipients. The data is encrypted once with one
+	 * session key and only the session key is encrypted with every key, in
+	 * parallel, so the envelope grows by one small slot per recipient. Every
+	 * recipient decrypts it with decryptStream() and its own key - the slot is
+	 * found by the fingerprint of the key.
+	 * 
+	 * @param plainData   data to encrypt.
+	 * @param keys        keys of the recipients.
+	 * @param executor    executor to encrypt the session key on.
+	 * @param parallelism number of keys encrypting at the same time, including
+	 *                    the one on the calling thread.
+	 * @return the envelope.
+	 */
+	public static byte[] encryptStream(byte[] plainData, List<? extends CryptAsymmKey> keys, Executor executor,
+			int parallelism) {
+		if (keys.isEmpty())
+			throw new IllegalArgumentException("No recipients");
+		// The session key must fit the smallest product
+		int keySize = plainData.length;
+		for (CryptAsymmKey key : keys)
+			keySize = Math.min(keySize, key.getKeySize() / 8);
+		String symmKey = RandomClient.generateRandomString(keySize, RandomClient.Mode.ALPHANUMERIC, false);
+		BigInteger gemStr = new BigInteger(symmKey.getBytes());
+		BigInteger[] encs = new BigInteger[keys.size()];
+		// A failure of any key is thrown here once the others are done
+		CryptAsymmBatch.runAll(keys.size(), index -> encs[index] = keys.get(index).modPow(gemStr), executor,
+				parallelism);
 
-		//
+		// Envelope: version byte, varint number of slots, slots, data. Slot: 8-byte
+		// fingerprint of the key, varint length of the gem, gem
+		int dataOff = 1 + varIntSize(keys.size());
+		for (CryptAsymmKey key : keys)
+			dataOff += 8 + varIntSize(gemSize(key)) + gemSize(key);
+		byte[] encryptedDataWithGem = new byte[dataOff + plainData.length];
+		encryptedDataWithGem[0] = ENVELOPE_MULTI;
+		int off = putVarInt(encryptedDataWithGem, 1, keys.size());
+		for (int i = 0; i < encs.length; i++) {
+			CryptAsymmKey key = keys.get(i);
+			long fingerprint = key.getFingerprint();
+			putInt(encryptedDataWithGem, off, (int) (fingerprint >>> 32));
+			putInt(encryptedDataWithGem, off + 4, (int) fingerprint);
+			int gemLen = gemSize(key);
+			off = putVarInt(encryptedDataWithGem, off + 8, gemLen);
+			putMagnitude(encryptedDataWithGem, off, gemLen, encs[i]);
+			off += gemLen;
+		}
+		CryptAsymmClient cryptClient = new CryptAsymmClient(new CryptSymmKey(symmKey));
+		cryptClient.crypt(plainData, 0, plainData.length, encryptedDataWithGem, dataOff, 0);
 		return encryptedDataWithGem;
 	}
 
 	// Decrypt
+	// Both binary envelopes and the older ones with a decimal gem are accepted
 	public static byte[] decryptStream(byte[] encryptedDataWithGem, CryptAsymmKey key) {
+		return decryptStream(encryptedDataWithGem, key, gemCache);
+	}
 
-		byte[] gemLenBytes = new byte[4];
-		for (int a = 0; a < 4; a++)
-			gemLenBytes[a] = encryptedDataWithGem[a];
+	/**
+	 * Decrypts an envelope taking its session key from a cache if the same gem
+	 * was decrypted with the same key before.
+	 * 
+	 * @param encryptedDataWithGem the envelope.
+	 * @param key                  private key.
+	 * @param cache                cache of session keys. Null to recover the
+	 *                             session key with the private key every time.
+	 * @return plain data.
+	 */
+	public static byte[] decryptStream(byte[] encryptedDataWithGem, CryptAsymmKey key, CryptAsymmGemCache cache) {
 
-		int gemLen = fromByteArray(gemLenBytes);
-		byte[] gemEnc = new byte[gemLen];
-		for (int a = 0; a < gemLen; a++)
-			gemEnc[a] = encryptedDataWithGem[a + 4];
-		BigInteger gemStr = new BigInteger(new String(gemEnc));
+		BigInteger gemStr;
+		int dataOff;
+		checkLength(encryptedDataWithGem, 0, 1);
+		byte version = encryptedDataWithGem[0];
+		if (version == ENVELOPE_BINARY) {
+			int gemLen = getVarInt(encryptedDataWithGem, 1);
+			int gemOff = 1 + varIntSize(gemLen);
+			dataOff = checkLength(encryptedDataWithGem, gemOff, gemLen);
+			gemStr = new BigInteger(1, encryptedDataWithGem, gemOff, gemLen);
+		} else if (version == ENVELOPE_DECIMAL) {
+			int gemLen = getInt(encryptedDataWithGem, checkLength(encryptedDataWithGem, 0, 4) - 4);
+			dataOff = checkLength(encryptedDataWithGem, 4, gemLen);
+			gemStr = new BigInteger(new String(encryptedDataWithGem, 4, gemLen));
+		} else if (version == ENVELOPE_MULTI) {
+			// Slots are skipped until the one of the key
+			long fingerprint = key.getFingerprint();
+			int count = getVarInt(encryptedDataWithGem, 1);
+			int off = 1 + varIntSize(count);
+			gemStr = null;
+			for (int i = 0; i < count; i++) {
+				checkLength(encryptedDataWithGem, off, 8);
+				long slotFingerprint = ((long) getInt(encryptedDataWithGem, off) << 32)
+						| (getInt(encryptedDataWithGem, off + 4) & 0xFFFFFFFFL);
+				int gemLen = getVarInt(encryptedDataWithGem, off + 8);
+				int gemOff = off + 8 + varIntSize(gemLen);
+				off = checkLength(encryptedDataWithGem, gemOff, gemLen);
+				if (gemStr == null && slotFingerprint == fingerprint)
+					gemStr = new BigInteger(1, encryptedDataWithGem, gemOff, gemLen);
+			}
+			if (gemStr == null)
+				throw new IllegalArgumentException("No slot for the key in the envelope");
+			dataOff = off;
+		} else if (version == ENVELOPE_SESSION)
+			throw new IllegalArgumentException("Session envelope - decrypt it with CryptAsymmReceiver");
+		else
+			throw new IllegalArgumentException("Unknown envelope version " + version);
 
-		// DOnt use (byte[]) constructor nor toBytes method. It is wrong
-		BigInteger enc = gemStr.modPow(key.getExponent(), key.getProduct());
-		byte[] gem = enc.toByteArray();
-		String symmKey = new String(gem);
+		CryptSymmKey symmKey = recoverSessionKey(gemStr, key, cache);
 
-		byte[] encryptedData = new byte[encryptedDataWithGem.length - (gemLen + 4)];
-		for (int a = 0; a < encryptedData.length; a++)
-			encryptedData[a] = encryptedDataWithGem[gemLen + 4 + a];
-		//
-		CryptAsymmClient cryptClient = new CryptAsymmClient(new CryptSymmKey(symmKey));
-		byte[] plainData = cryptClient.decrypt(encryptedData);
+		// Data is decrypted right from its offset in the envelope
+		byte[] plainData = new byte[encryptedDataWithGem.length - dataOff];
+		CryptAsymmClient cryptClient = new CryptAsymmClient(symmKey);
+		cryptClient.crypt(encryptedDataWithGem, dataOff, plainData.length, plainData, 0, 0);
 
 		//
 		return plainData;
 	}
 
+	/**
+	 * Signs data with a private key. The data is digested with
+	 * HasherClient.digest() into a number one bit shorter than the product of the
+	 * key, which is raised to the private exponent - the CRT constants and the
+	 * Montgomery context of the key are used if it has them.
+	 * 
+	 * @param data data to sign.
+	 * @param key  private key to sign with.
+	 * @return signature as a big-endian magnitude as wide as the product.
+	 */
+	public static byte[] sign(byte[] data, CryptAsymmPrivateKey key) {
+		int sigLen = gemSize(key);
+		byte[] signature = new byte[sigLen];
+		putMagnitude(signature, 0, sigLen, key.modPow(digest(data, key)));
+		return signature;
+	}
+
+	/**
+	 * Checks a signature made by sign(). Only the public exponent is used, so
+	 * with EXPONENT_65537 keys it is many times faster than signing or a round
+	 * trip through encryption.
+	 * 
+	 * @param data      signed data.
+	 * @param signature signature of the data.
+	 * @param key       public key of the pair that signed it.
+	 * @return true if the signature was made for the data with the private key of
+	 *         the pair. False also for malformed signatures.
+	 */
+	public static boolean verify(byte[] data, byte[] signature, CryptAsymmPublicKey key) {
+		if (signature == null || signature.length != gemSize(key))
+			return false;
+		BigInteger sig = new BigInteger(1, signature);
+		if (sig.compareTo(key.getProduct()) >= 0)
+			return false;
+		return key.modPow(sig).equals(digest(data, key));
+	}
+
+	/**
+	 * Checks many signatures under one key on the common ForkJoinPool, using all
+	 * its threads and the calling one.
+	 * 
+	 * @param data       signed data.
+	 * @param signatures signatures in the order of the data.
+	 * @param key        public key of the pair that signed them.
+	 * @return results of verify() in the order of the data.
+	 */
+	public static boolean[] verifyBatch(List<byte[]> data, List<byte[]> signatures, CryptAsymmPublicKey key) {
+		return verifyBatch(data, signatures, key, ForkJoinPool.commonPool(),
+				ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
+
+	/**
+	 * Checks many signatures under one key on an executor. The key is shared by
+	 * all of them, so its Montgomery context is made once for the whole batch.
+	 * 
+	 * @param data        signed data.
+	 * @param signatures  signatures in the order of the data.
+	 * @param key         public key of the pair that signed them.
+	 * @param executor    executor to run on.
+	 * @param parallelism number of signatures checked at the same time, including
+	 *                    the one on the calling thread.
+	 * @return results of verify() in the order of the data.
+	 */
+	public static boolean[] verifyBatch(List<byte[]> data, List<byte[]> signatures, CryptAsymmPublicKey key,
+			Executor executor, int parallelism) {
+		if (data.size() != signatures.size())
+			throw new IllegalArgumentException("Sizes of data and signatures differ");
+		boolean[] valid = new boolean[data.size()];
+		// A malformed signature does not verify. Errors are thrown here once the
+		// other signatures are done
+		CryptAsymmBatch.runAll(valid.length, index -> {
+			try {
+				valid[index] = verify(data.get(index), signatures.get(index), key);
+			} catch (RuntimeException e) {
+				valid[index] = false;
+			}
+		}, executor, parallelism);
+		return valid;
+	}
+
+	// Digest padded to one bit less than the product, so it is always smaller
+	// than the product
+	private static BigInteger digest(byte[] data, CryptAsymmKey key) {
+		int bits = key.getProduct().bitLength() - 1;
+		byte[] digest = HasherClient.digest(data, (bits + 7) / 8);
+		if (bits % 8 != 0)
+			digest[0] &= (1 << (bits % 8)) - 1;
+		return new BigInteger(1, digest);
+	}
+
+	/**
+	 * Encrypts a batch of data on the common ForkJoinPool, using all its threads
+	 * and the calling one.
+	 * 
+	 * @param plainData data to encrypt.
+	 * @param key       key to encrypt with.
+	 * @return envelopes in the order of the data, with the failures of single
+	 *         items.
+	 */
+	public static CryptAsymmBatch encryptBatch(List<byte[]> plainData, CryptAsymmKey key) {
+		return encryptBatch(plainData, key, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
+
+	/**
+	 * Encrypts a batch of data on an executor - e.g. a ForkJoinPool or, on newer
+	 * Java versions, an executor of virtual threads.
+	 * 
+	 * @param plainData   data to encrypt.
+	 * @param key         key to encrypt with.
+	 * @param executor    executor to run on.
+	 * @param parallelism number of items encrypted at the same time, including
+	 *                    the one on the calling thread.
+	 * @return envelopes in the order of the data, with the failures of single
+	 *         items.
+	 */
+	public static CryptAsymmBatch encryptBatch(List<byte[]> plainData, CryptAsymmKey key, Executor executor,
+			int parallelism) {
+		return CryptAsymmBatch.run(plainData, data -> encryptStream(data, key), executor, parallelism);
+	}
+
+	/**
+	 * Decrypts a batch of envelopes on the common ForkJoinPool, using all its
+	 * threads and the calling one.
+	 * 
+	 * @param encryptedDataWithGem envelopes to decrypt.
+	 * @param key                  key to decrypt with.
+	 * @return plain data in the order of the envelopes, with the failures of
+	 *         single items.
+	 */
+	public static CryptAsymmBatch decryptBatch(List<byte[]> encryptedDataWithGem, CryptAsymmKey key) {
+		return decryptBatch(encryptedDataWithGem, key, ForkJoinPool.commonPool(),
+				ForkJoinPool.getCommonPoolParallelism() + 1);
+	}
+
+	/**
+	 * Decrypts a batch of envelopes on an executor - e.g. a ForkJoinPool or, on
+	 * newer Java versions, an executor of virtual threads.
+	 * 
+	 * @param encryptedDataWithGem envelopes to decrypt.
+	 * @param key                  key to decrypt with.
+	 * @param executor             executor to run on.
+	 * @param parallelism          number of envelopes decrypted at the same time,
+	 *                             including the one on the calling thread.
+	 * @return plain data in the order of the envelopes, with the failures of
+	 *         single items.
+	 */
+	public static CryptAsymmBatch decryptBatch(List<byte[]> encryptedDataWithGem, CryptAsymmKey key,
+			Executor executor, int parallelism) {
+		return CryptAsymmBatch.run(encryptedDataWithGem, data -> decryptStream(data, key), executor, parallelism);
+	}
+
+	/**
+	 * Sets the way keys compute their modPow. Applies to all keys from the next
+	 * operation on.
+	 * 
+	 * @param type one of MODPOW_TYPE types. MODPOW_BIGINTEGER is the default.
+	 */
+	public static void setModPowType(MODPOW_TYPE type) {
+		if (type == null)
+			throw new IllegalArgumentException("Null argument");
+		modPowType = type;
+	}
+
+	/**
+	 * @return the way keys compute their modPow.
+	 */
+	public static MODPOW_TYPE getModPowType() {
+		return modPowType;
+	}
+
+	/**
+	 * Sets the cache of session keys used by decryptStream() when none is given.
+	 * 
+	 * @param cache the cache. Null turns caching off, which is the default.
+	 */
+	public static void setGemCache(CryptAsymmGemCache cache) {
+		gemCache = cache;
+	}
+
+	/**
+	 * @return the cache of session keys used by decryptStream() or null if
+	 *         caching is off.
+	 */
+	public static CryptAsymmGemCache getGemCache() {
+		return gemCache;
+	}
+
+	/**
+	 * Wraps a channel so that everything written to it is encrypted into one
+	 * envelope, as by CryptAsymmOutputStream.
+	 * 
+	 * @param channel channel to write the envelope to.
+	 * @param key     key to encrypt with.
+	 * @return channel to write plain data to. Closing it writes the header of an
+	 *         empty envelope if nothing was written and closes the channel.
+	 */
+	public static WritableByteChannel encryptChannel(WritableByteChannel channel, CryptAsymmKey key) {
+		return Channels.newChannel(new CryptAsymmOutputStream(Channels.newOutputStream(channel), key));
+	}
+
+	/**
+	 * Wraps a channel so that an envelope read from it is decrypted, as by
+	 * CryptAsymmInputStream.
+	 * 
+	 * @param channel channel to read the envelope from.
+	 * @param key     key to decrypt with.
+	 * @return channel to read plain data from.
+	 */
+	public static ReadableByteChannel decryptChannel(ReadableByteChannel channel, CryptAsymmKey key) {
+		return Channels.newChannel(new CryptAsymmInputStream(Channels.newInputStream(channel), key));
+	}
+
+	// Width of the gem - as wide as the product of the key
+	static int gemSize(CryptAsymmKey key) {
+		return (key.getProduct().bitLength() + 7) / 8;
+	}
+
+	// Size of the header of a binary envelope - its data starts after it
+	static int headerSize(int gemLen) {
+		return 1 + varIntSize(gemLen) + gemLen;
+	}
+
+	// Writes the header of a binary envelope
+	static void putHeader(byte[] bytes, int gemLen, BigInteger enc) {
+		bytes[0] = ENVELOPE_BINARY;
+		int gemOff = putVarInt(bytes, 1, gemLen);
+		putMagnitude(bytes, gemOff, gemLen, enc);
+	}
+
+	static CryptSymmKey recoverSessionKey(BigInteger gemStr, CryptAsymmKey key, CryptAsymmGemCache cache) {
+		return cache != null ? cache.get(gemStr, key) : decapsulate(gemStr, key);
+	}
+
+	// Recovers the session key hidden in a gem
+	static CryptSymmKey decapsulate(BigInteger gemStr, CryptAsymmKey key) {
+		// DOnt use (byte[]) constructor nor toBytes method. It is wrong
+		BigInteger enc = key.modPow(gemStr);
+		byte[] gem = enc.toByteArray();
+		return new CryptSymmKey(new String(gem));
+	}
+
 	static public final byte[] intToByteArray(int value) {
 		return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
 	}
@@ -78,4 +448,103 @@ public class CryptAsymm {
 		return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8)
 				| ((bytes[3] & 0xFF) << 0);
 	}
-}
\ No newline at end of file
+
+	static void putInt(byte[] bytes, int off, int value) {
+		bytes[off] = (byte) (value >>> 24);
+		bytes[off + 1] = (byte) (value >>> 16);
+		bytes[off + 2] = (byte) (value >>> 8);
+		bytes[off + 3] = (byte) value;
+	}
+
+	static int getInt(byte[] bytes, int off) {
+		return ((bytes[off] & 0xFF) << 24) | ((bytes[off + 1] & 0xFF) << 16) | ((bytes[off + 2] & 0xFF) << 8)
+				| ((bytes[off + 3] & 0xFF) << 0);
+	}
+
+	// Writes the magnitude of a non-negative number right-aligned in len bytes
+	static void putMagnitude(byte[] bytes, int off, int len, BigInteger value) {
+		byte[] mag = value.toByteArray();
+		// toByteArray() may add a leading zero sign byte
+		int magOff = mag.length > len ? mag.length - len : 0;
+		int magLen = mag.length - magOff;
+		Arrays.fill(bytes, off, off + len - magLen, (byte) 0);
+		System.arraycopy(mag, magOff, bytes, off + len - magLen, magLen);
+	}
+
+	// Offset after len bytes at off. Lengths read from an envelope are checked
+	// with it before they are used
+	static int checkLength(byte[] bytes, int off, int len) {
+		if (len < 0 || off > bytes.length - len)
+			throw new IllegalArgumentException("Truncated envelope");
+		return off + len;
+	}
+
+	// Unsigned LEB128 - 7 bits per byte, lowest first, high bit set if more follow.
+	// Readers accept only the shortest form of a value, so varIntSize() tells how
+	// many bytes were read
+	static int varIntSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0)
+			size++;
+		return size;
+	}
+
+	static int putVarInt(byte[] bytes, int off, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[off++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[off++] = (byte) value;
+		return off;
+	}
+
+	static int getVarInt(byte[] bytes, int off) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (off >= bytes.length)
+				throw new IllegalArgumentException("Truncated varint");
+			byte b = bytes[off++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				// Values are not negative
+				if ((b == 0 && shift > 0) || (shift == 28 && b > 0x07))
+					break;
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	static int varLongSize(long value) {
+		int size = 1;
+		while ((value >>>= 7) != 0)
+			size++;
+		return size;
+	}
+
+	static int putVarLong(byte[] bytes, int off, long value) {
+		while ((value & ~0x7FL) != 0) {
+			bytes[off++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[off++] = (byte) value;
+		return off;
+	}
+
+	static long getVarLong(byte[] bytes, int off) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (off >= bytes.length)
+				throw new IllegalArgumentException("Truncated varint");
+			byte b = bytes[off++];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				// Values are not negative
+				if ((b == 0 && shift > 0) || (shift == 63 && b > 0))
+					break;
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+}
@@ -0,0 +1,161 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Results of a batch of asymmetric operations, in the order of the input. An
+ * item that failed has no result - isError(index) tells it and
+ * getException(index) tells why. A failure of one item does not stop the
+ * others.
+ */
+public class CryptAsymmBatch {
+
+	private final byte[][] results;
+	private final Exception[] exceptions;
+	private int errorCount;
+
+	private CryptAsymmBatch(int size) {
+		results = new byte[size][];
+		exceptions = new Exception[size];
+	}
+
+	/**
+	 * Runs an operation on every item. Up to parallelism - 1 workers are
+	 * submitted to the executor and the calling thread works too, so the batch
+	 * finishes even if the executor is busy or rejects the workers. Workers take
+	 * the next item as soon as they are done with the previous one, so slow items
+	 * do not hold up the others. An Error of an item is thrown to the caller once
+	 * all workers are done.
+	 */
+	static CryptAsymmBatch run(List<byte[]> items, Function<byte[], byte[]> operation, Executor executor,
+			int parallelism) {
+		CryptAsymmBatch batch = new CryptAsymmBatch(items.size());
+		runAll(items.size(), index -> {
+			try {
+				batch.results[index] = operation.apply(items.get(index));
+			} catch (Exception e) {
+				batch.exceptions[index] = e;
+			}
+		}, executor, parallelism);
+		// The latch makes the writes of the workers visible here
+		for (Exception e : batch.exceptions)
+			if (e != null)
+				batch.errorCount++;
+		return batch;
+	}
+
+	// Runs a task for every index from 0 to size - 1 as described above. If a
+	// task throws, the items not started yet are skipped and the first failure
+	// is thrown to the caller once the items in progress are done
+	static void runAll(int size, IntConsumer task, Executor executor, int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("<1 argument");
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(size);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Runnable worker = () -> {
+			int index;
+			while ((index = next.getAndIncrement()) < size) {
+				try {
+					if (failure.get() == null)
+						task.accept(index);
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		for (int i = 1; i < Math.min(parallelism, size); i++) {
+			try {
+				executor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				break;
+			}
+		}
+		worker.run();
+
+		// Items taken by other workers may still be running
+		boolean interrupted = false;
+		while (true) {
+			try {
+				done.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		Throwable e = failure.get();
+		if (e instanceof Error)
+			throw (Error) e;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e != null)
+			throw new IllegalStateException(e);
+	}
+
+	/**
+	 * @return number of items.
+	 */
+	public int size() {
+		return results.length;
+	}
+
+	/**
+	 * @param index index of the item.
+	 * @return result of the item or null if it failed.
+	 */
+	public byte[] getResult(int index) {
+		return results[index];
+	}
+
+	/**
+	 * @return results of all items in order, with null for failed ones.
+	 */
+	public List<byte[]> getResults() {
+		List<byte[]> list = new ArrayList<byte[]>(results.length);
+		for (byte[] result : results)
+			list.add(result);
+		return list;
+	}
+
+	/**
+	 * @param index index of the item.
+	 * @return true if the item failed. Use getException() to get the reason.
+	 */
+	public boolean isError(int index) {
+		return exceptions[index] != null;
+	}
+
+	/**
+	 * @return true if any item failed.
+	 */
+	public boolean isError() {
+		return errorCount > 0;
+	}
+
+	/**
+	 * @return number of failed items.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @param index index of the item.
+	 * @return exception the item failed with or null.
+	 */
+	public Exception getException(int index) {
+		return exceptions[index];
+	}
+}
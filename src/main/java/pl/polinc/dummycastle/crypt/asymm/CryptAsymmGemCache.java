@@ -0,0 +1,207 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+
+import pl.polinc.dummycastle.crypt.CryptCache;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+
+/**
+ * Bounded cache of session keys recovered from gems of asymmetric envelopes.
+ * Decrypting the same envelope again - a retry, a re-read - takes the session
+ * key from the cache and skips the modPow with the private key. Entries are
+ * identified by the exponent and product of the key and the value of the gem,
+ * so equal keys parsed separately share them. Entries are evicted when the
+ * cache is full - the least recently used first - and when they get older than
+ * the time to live. The cache is thread safe.
+ * 
+ * The cache holds session keys in memory, so it is off unless set with
+ * CryptAsymm.setGemCache() or passed to CryptAsymm.decryptStream().
+ */
+public class CryptAsymmGemCache {
+
+	/**
+	 * Default maximal number of session keys.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1024;
+	/**
+	 * Default time to live of a session key in milliseconds.
+	 */
+	public static final long DEFAULT_TTL = 10 * 60 * 1000;
+
+	/**
+	 * Receives events of the cache, e.g. to feed metrics. Methods are called
+	 * outside of the lock of the cache, on the thread doing the lookup.
+	 */
+	public interface Listener {
+
+		/**
+		 * A session key was found in the cache.
+		 */
+		public default void onHit() {
+		}
+
+		/**
+		 * A session key was not cached and had to be recovered with the private
+		 * key.
+		 * 
+		 * @param nanos time the recovery took.
+		 */
+		public default void onMiss(long nanos) {
+		}
+
+		/**
+		 * Session keys were removed because of the size or time limit.
+		 * 
+		 * @param count number of removed keys.
+		 */
+		public default void onEviction(int count) {
+		}
+	}
+
+	private volatile Listener listener;
+	private final CryptCache<GemId, CryptSymmKey> sessionKeys;
+
+	/**
+	 * Creates a cache with default limits.
+	 */
+	public CryptAsymmGemCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+	}
+
+	/**
+	 * Creates a cache with specific limits.
+	 * 
+	 * @param maxSize maximal number of session keys. 0 turns caching off.
+	 * @param ttl     time to live of a session key in milliseconds.
+	 */
+	public CryptAsymmGemCache(int maxSize, long ttl) {
+		sessionKeys = new CryptCache<GemId, CryptSymmKey>(maxSize, ttl);
+	}
+
+	/**
+	 * Changes limits of the cache. Session keys over the new limits are evicted.
+	 * 
+	 * @param maxSize maximal number of session keys. 0 turns caching off.
+	 * @param ttl     time to live of a session key in milliseconds.
+	 */
+	public void configure(int maxSize, long ttl) {
+		sessionKeys.configure(maxSize, ttl);
+		notifyEviction();
+	}
+
+	/**
+	 * Sets the receiver of events of the cache.
+	 * 
+	 * @param listener the receiver. Null removes it.
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Retrieves the session key hidden in a gem, recovering it with the key if it
+	 * is not cached.
+	 * 
+	 * @param gem encrypted session key.
+	 * @param key key to recover the session key with.
+	 * @return the session key.
+	 */
+	public CryptSymmKey get(BigInteger gem, CryptAsymmKey key) {
+		GemId id = new GemId(key.getExponent(), key.getProduct(), gem);
+		long now = System.nanoTime();
+		CryptSymmKey symmKey = sessionKeys.get(id);
+		Listener listener = this.listener;
+		if (symmKey != null) {
+			if (listener != null)
+				listener.onHit();
+			return symmKey;
+		}
+
+		// Recovered outside of the lock - a concurrent miss at worst does the
+		// modPow twice
+		symmKey = CryptAsymm.decapsulate(gem, key);
+		long created = System.nanoTime();
+		sessionKeys.put(id, symmKey);
+		if (listener != null)
+			listener.onMiss(created - now);
+		notifyEviction();
+		return symmKey;
+	}
+
+	/**
+	 * Removes all session keys. Statistics are not reset.
+	 */
+	public void clear() {
+		sessionKeys.clear();
+	}
+
+	/**
+	 * @return number of session keys cached at the moment, including expired ones
+	 *         not evicted yet.
+	 */
+	public int getSize() {
+		return sessionKeys.getSize();
+	}
+
+	/**
+	 * @return number of lookups that found a session key.
+	 */
+	public long getHits() {
+		return sessionKeys.getHits();
+	}
+
+	/**
+	 * @return number of lookups that had to recover a session key.
+	 */
+	public long getMisses() {
+		return sessionKeys.getMisses();
+	}
+
+	/**
+	 * @return number of session keys removed because of the size or time limit.
+	 */
+	public long getEvictions() {
+		return sessionKeys.getEvictions();
+	}
+
+	public String toString() {
+		return sessionKeys.toString();
+	}
+
+	// Evictions are reported outside of the lock of the map, so they may be
+	// reported by another thread than the one causing them
+	private void notifyEviction() {
+		int evicted = sessionKeys.takeEvicted();
+		Listener listener = this.listener;
+		if (evicted > 0 && listener != null)
+			listener.onEviction(evicted);
+	}
+
+	private static class GemId {
+		final BigInteger exponent;
+		final BigInteger product;
+		final BigInteger gem;
+		final int hash;
+
+		GemId(BigInteger exponent, BigInteger product, BigInteger gem) {
+			this.exponent = exponent;
+			this.product = product;
+			this.gem = gem;
+			this.hash = (gem.hashCode() * 31 + product.hashCode()) * 31 + exponent.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof GemId))
+				return false;
+			GemId other = (GemId) obj;
+			return hash == other.hash && gem.equals(other.gem) && product.equals(other.product)
+					&& exponent.equals(other.exponent);
+		}
+	}
+}
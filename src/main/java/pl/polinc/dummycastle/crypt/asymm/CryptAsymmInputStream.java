@@ -0,0 +1,138 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import pl.polinc.dummycastle.crypt.symm.CryptSymmInputStream;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+
+/**
+ * Decrypts an asymmetric envelope read from the underlying stream. The header
+ * is read on the first read, the session key is recovered from it once - or
+ * taken from the cache set with CryptAsymm.setGemCache() - and the data is then
+ * decrypted in place in the caller's array as it is read, so memory use does
+ * not depend on the size of the data. Envelopes of CryptAsymm.encryptStream()
+ * and CryptAsymmOutputStream are accepted, both binary and with a decimal gem,
+ * as well as multi-recipient ones.
+ */
+public class CryptAsymmInputStream extends FilterInputStream {
+
+	private final CryptAsymmKey key;
+	private CryptSymmInputStream body;
+
+	/**
+	 * Creates a stream decrypting with a key.
+	 * 
+	 * @param in  stream to read the envelope from.
+	 * @param key key to decrypt with.
+	 */
+	public CryptAsymmInputStream(InputStream in, CryptAsymmKey key) {
+		super(in);
+		this.key = key;
+	}
+
+	@Override
+	public int read() throws IOException {
+		return readHeader().read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		return readHeader().read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		return readHeader().skip(n);
+	}
+
+	@Override
+	public int available() throws IOException {
+		return body != null ? body.available() : 0;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	private CryptSymmInputStream readHeader() throws IOException {
+		if (body != null)
+			return body;
+		BigInteger gemStr;
+		int version = readByte();
+		if (version == CryptAsymm.ENVELOPE_BINARY) {
+			gemStr = new BigInteger(1, readBytes(readVarInt()));
+		} else if (version == CryptAsymm.ENVELOPE_MULTI) {
+			long fingerprint = key.getFingerprint();
+			int count = readVarInt();
+			gemStr = null;
+			for (int i = 0; i < count; i++) {
+				long slotFingerprint = 0;
+				for (int j = 0; j < 8; j++)
+					slotFingerprint = (slotFingerprint << 8) | readByte();
+				byte[] gem = readBytes(readVarInt());
+				if (gemStr == null && slotFingerprint == fingerprint)
+					gemStr = new BigInteger(1, gem);
+			}
+			if (gemStr == null)
+				throw new IOException("No slot for the key in the envelope");
+		} else if (version == CryptAsymm.ENVELOPE_DECIMAL) {
+			// The version byte is the highest byte of the length
+			int gemLen = (readByte() << 16) | (readByte() << 8) | readByte();
+			gemStr = new BigInteger(new String(readBytes(gemLen), StandardCharsets.US_ASCII));
+		} else if (version == CryptAsymm.ENVELOPE_SESSION)
+			throw new IOException("Session envelope - decrypt it with CryptAsymmReceiver");
+		else
+			throw new IOException("Unknown envelope version " + version);
+
+		CryptSymmKey symmKey = CryptAsymm.recoverSessionKey(gemStr, key, CryptAsymm.getGemCache());
+		body = new CryptSymmInputStream(in, symmKey);
+		return body;
+	}
+
+	private int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			if (shift >= 32)
+				throw new IOException("Malformed varint");
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if (b < 0x80) {
+				// Only the shortest form of a value that is not negative is accepted
+				if ((b == 0 && shift > 0) || (shift == 28 && b > 0x07))
+					throw new IOException("Malformed varint");
+				return value;
+			}
+		}
+	}
+
+	private int readByte() throws IOException {
+		int b = in.read();
+		if (b < 0)
+			throw new EOFException("Truncated envelope header");
+		return b;
+	}
+
+	// Not allocated at once - a malformed length does not take more memory than
+	// the stream has
+	private byte[] readBytes(int len) throws IOException {
+		byte[] bytes = in.readNBytes(len);
+		if (bytes.length < len)
+			throw new EOFException("Truncated envelope header");
+		return bytes;
+	}
+}
@@ -2,6 +2,8 @@ package pl.polinc.dummycastle.crypt.asymm;
 
 import java.math.BigInteger;
 
+import pl.polinc.dummycastle.hash.HasherClient;
+
 public interface CryptAsymmKey {
 
 	public String toString();
@@ -12,4 +14,30 @@ public interface CryptAsymmKey {
 
 	public int getKeySize();
 
-}
\ No newline at end of file
+	/**
+	 * Raises a value to the exponent of the key modulo its product. Keys may
+	 * override it with a faster way of getting the same result.
+	 * 
+	 * @param value value to raise. Must be smaller than the product.
+	 * @return value^exponent mod product
+	 */
+	public default BigInteger modPow(BigInteger value) {
+		return value.modPow(getExponent(), getProduct());
+	}
+
+	/**
+	 * Returns the 8-byte HasherClient.digest() of the product of the key. The
+	 * public and the private key of a pair share it, so it tells which private
+	 * key opens a slot of a multi-recipient envelope.
+	 * 
+	 * @return 64-bit fingerprint of the product.
+	 */
+	public default long getFingerprint() {
+		byte[] hash = HasherClient.digest(getProduct().toByteArray(), 8);
+		long fingerprint = 0;
+		for (int i = 0; i < 8; i++)
+			fingerprint = (fingerprint << 8) | (hash[i] & 0xFF);
+		return fingerprint;
+	}
+
+}
@@ -0,0 +1,159 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.util.function.Function;
+
+import pl.polinc.dummycastle.crypt.CryptCache;
+
+/**
+ * Bounded cache of asymmetric keys parsed from strings. A key string seen
+ * recently is not parsed again. Keys are also interned: the decimal text, the
+ * Base64 and the bytes of one key give one instance. A key is identified by its
+ * toString(), so a key without the CRT data stays apart from the same key with
+ * it and every key keeps the form it was parsed from. Both maps drop the least
+ * recently used keys when they are full. The cache is thread safe. Keys are
+ * immutable, so sharing them is safe.
+ */
+public class CryptAsymmKeyCache {
+
+	/**
+	 * Default maximal number of keys.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	// Cache of createFromString()
+	static final CryptAsymmKeyCache shared = new CryptAsymmKeyCache();
+
+	private final CryptCache<KeyId, CryptAsymmKey> parsed;
+	private final CryptCache<KeyId, CryptAsymmKey> interned;
+
+	/**
+	 * Creates a cache with a default limit.
+	 */
+	public CryptAsymmKeyCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a cache with a specific limit.
+	 * 
+	 * @param maxSize maximal number of keys. 0 turns caching off.
+	 */
+	public CryptAsymmKeyCache(int maxSize) {
+		parsed = new CryptCache<KeyId, CryptAsymmKey>(maxSize, Long.MAX_VALUE);
+		interned = new CryptCache<KeyId, CryptAsymmKey>(maxSize, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Changes the limit of the cache. Keys over the new limit are evicted.
+	 * 
+	 * @param maxSize maximal number of keys. 0 turns caching off.
+	 */
+	public void configure(int maxSize) {
+		parsed.configure(maxSize, Long.MAX_VALUE);
+		interned.configure(maxSize, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Retrieves the key parsed from a string, parsing it if it is not cached.
+	 * 
+	 * @param keyStr key string.
+	 * @param type   class of the key.
+	 * @param parser parses the key string.
+	 * @return the key.
+	 */
+	public <K extends CryptAsymmKey> K get(String keyStr, Class<K> type, Function<String, K> parser) {
+		KeyId id = new KeyId(type, keyStr);
+		CryptAsymmKey cached = parsed.get(id);
+		if (cached != null)
+			return type.cast(cached);
+
+		// Parsed outside of the lock - a concurrent miss at worst parses twice
+		K key = intern(parser.apply(keyStr));
+		parsed.put(id, key);
+		return key;
+	}
+
+	/**
+	 * Retrieves the cached instance of the same key or caches this one.
+	 * 
+	 * @param key the key.
+	 * @return the shared instance. Its toString() is the same as of the key.
+	 */
+	public <K extends CryptAsymmKey> K intern(K key) {
+		@SuppressWarnings("unchecked")
+		Class<K> type = (Class<K>) key.getClass();
+		KeyId id = new KeyId(type, key.toString());
+		// The lock of the map makes the lookup and the put one step
+		synchronized (interned) {
+			CryptAsymmKey other = interned.get(id);
+			if (other != null)
+				return type.cast(other);
+			interned.put(id, key);
+			return key;
+		}
+	}
+
+	/**
+	 * Removes all keys. Statistics are not reset.
+	 */
+	public void clear() {
+		parsed.clear();
+		interned.clear();
+	}
+
+	/**
+	 * @return number of interned keys.
+	 */
+	public int getSize() {
+		return interned.getSize();
+	}
+
+	/**
+	 * @return number of lookups that found a parsed key.
+	 */
+	public long getHits() {
+		return parsed.getHits();
+	}
+
+	/**
+	 * @return number of lookups that had to parse a key.
+	 */
+	public long getMisses() {
+		return parsed.getMisses();
+	}
+
+	/**
+	 * @return number of keys removed because of the size limit.
+	 */
+	public long getEvictions() {
+		return parsed.getEvictions() + interned.getEvictions();
+	}
+
+	public String toString() {
+		return "size=" + interned.getSize() + " parsed=" + parsed.getSize() + " hits=" + parsed.getHits()
+				+ " misses=" + parsed.getMisses() + " evictions=" + getEvictions();
+	}
+
+	private static class KeyId {
+		final Class<?> type;
+		final String keyStr;
+
+		KeyId(Class<?> type, String keyStr) {
+			this.type = type;
+			this.keyStr = keyStr;
+		}
+
+		@Override
+		public int hashCode() {
+			return keyStr.hashCode() * 31 + type.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof KeyId))
+				return false;
+			KeyId other = (KeyId) obj;
+			return type == other.type && keyStr.equals(other.keyStr);
+		}
+	}
+}
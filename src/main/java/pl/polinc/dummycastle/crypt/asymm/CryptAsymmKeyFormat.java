@@ -0,0 +1,94 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text and binary forms of asymmetric keys. The text form is the decimal
+ * numbers of the key joined by a separator. The binary form is a kind byte
+ * followed by the numbers of the key, each as a varint length and a big-endian
+ * magnitude. Its Base64 encoding is accepted wherever the text form is.
+ */
+final class CryptAsymmKeyFormat {
+
+	static final String KEY_SEPARATOR = "=@=";
+
+	// Kinds of keys in the binary form
+	static final byte KEY_PUBLIC = 1;
+	static final byte KEY_PRIVATE = 2;
+	static final byte KEY_PRIVATE_CRT = 3;
+	static final byte KEY_PRIVATE_MULTI_PRIME = 4;
+
+	private CryptAsymmKeyFormat() {
+	}
+
+	/**
+	 * @return true if the key string is in the decimal text form, false if it is
+	 *         Base64. The separator cannot occur in Base64.
+	 */
+	static boolean isText(String keyStr) {
+		return keyStr.indexOf(KEY_SEPARATOR) >= 0;
+	}
+
+	/**
+	 * Splits a text key at its separators. Does the same as split(KEY_SEPARATOR)
+	 * without compiling a regular expression on every call.
+	 */
+	static String[] split(String keyStr) {
+		List<String> parts = new ArrayList<String>(8);
+		int from = 0;
+		int at;
+		while ((at = keyStr.indexOf(KEY_SEPARATOR, from)) >= 0) {
+			parts.add(keyStr.substring(from, at));
+			from = at + KEY_SEPARATOR.length();
+		}
+		parts.add(keyStr.substring(from));
+		// Like split(), trailing empty parts are dropped
+		int size = parts.size();
+		while (size > 0 && parts.get(size - 1).isEmpty())
+			size--;
+		return parts.subList(0, size).toArray(new String[size]);
+	}
+
+	/**
+	 * Writes the binary form of a key.
+	 * 
+	 * @param kind kind of the key.
+	 * @param nums numbers of the key. None may be negative.
+	 */
+	static byte[] toBytes(byte kind, BigInteger... nums) {
+		int size = 1;
+		for (BigInteger num : nums) {
+			int len = (num.bitLength() + 7) / 8;
+			size += CryptAsymm.varIntSize(len) + len;
+		}
+		byte[] bytes = new byte[size];
+		bytes[0] = kind;
+		int off = 1;
+		for (BigInteger num : nums) {
+			int len = (num.bitLength() + 7) / 8;
+			off = CryptAsymm.putVarInt(bytes, off, len);
+			CryptAsymm.putMagnitude(bytes, off, len, num);
+			off += len;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Reads the numbers of a key in the binary form. Its kind is the first byte.
+	 */
+	static BigInteger[] fromBytes(byte[] bytes) {
+		List<BigInteger> nums = new ArrayList<BigInteger>(8);
+		int off = 1;
+		while (off < bytes.length) {
+			int len = CryptAsymm.getVarInt(bytes, off);
+			off += CryptAsymm.varIntSize(len);
+			if (len > bytes.length - off)
+				throw new IllegalArgumentException("Truncated key");
+			nums.add(new BigInteger(1, bytes, off, len));
+			off += len;
+		}
+		return nums.toArray(new BigInteger[nums.size()]);
+	}
+}
@@ -0,0 +1,238 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys.EXPONENT_TYPE;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys.KEY_SIZE_TYPE;
+
+/**
+ * Keeps pairs of asymmetric keys generated in advance, so that they can be
+ * handed out at once. Every key size has its own target number of pairs, and
+ * low priority background threads refill the pool up to it. Handing out does
+ * not lock. If the pool runs dry, a pair is generated on the calling thread.
+ * Optionally, unused pairs are saved to a file on close() and loaded back when
+ * the pool is created again. The file holds private keys, so it must be kept as
+ * safe as the keys themselves.
+ */
+public class CryptAsymmKeyPool implements AutoCloseable {
+
+	private static final String FIELD_SEPARATOR = "\t";
+
+	private final EXPONENT_TYPE exponentType;
+	private Path persistFile;
+	private final ExecutorService workers;
+	private final EnumMap<KEY_SIZE_TYPE, Slot> slots = new EnumMap<KEY_SIZE_TYPE, Slot>(KEY_SIZE_TYPE.class);
+	private volatile boolean closed;
+
+	/**
+	 * Creates an empty pool with one background thread and no persistence.
+	 */
+	public CryptAsymmKeyPool() {
+		this(1, EXPONENT_TYPE.EXPONENT_RANDOM);
+	}
+
+	/**
+	 * Creates a pool without persistence. Nothing is generated until setTarget()
+	 * is called.
+	 * 
+	 * @param threads      number of background threads generating keys.
+	 * @param exponentType kind of public exponent of generated keys.
+	 */
+	public CryptAsymmKeyPool(int threads, EXPONENT_TYPE exponentType) {
+		if (threads < 1)
+			throw new IllegalArgumentException("<1 argument");
+		this.exponentType = exponentType;
+		for (KEY_SIZE_TYPE keySizeType : KEY_SIZE_TYPE.values())
+			slots.put(keySizeType, new Slot());
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread thread = new Thread(r, "CryptAsymmKeyPool");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		workers = executor;
+	}
+
+	/**
+	 * Creates a pool that loads pairs saved by a previous one from a file and
+	 * saves unused pairs to it on close(). Nothing else is generated until
+	 * setTarget() is called.
+	 * 
+	 * @param threads      number of background threads generating keys.
+	 * @param exponentType kind of public exponent of generated keys.
+	 * @param persistFile  file to load unused pairs from and to save them to.
+	 * @throws IOException if the file exists but cannot be read.
+	 */
+	public CryptAsymmKeyPool(int threads, EXPONENT_TYPE exponentType, Path persistFile) throws IOException {
+		this(threads, exponentType);
+		this.persistFile = persistFile;
+		if (Files.exists(persistFile))
+			load();
+	}
+
+	/**
+	 * Sets the number of pairs of a key size to keep ready and starts refilling
+	 * the pool up to it.
+	 * 
+	 * @param keySizeType size of the keys.
+	 * @param count       number of pairs. 0 stops generating more of them.
+	 */
+	public void setTarget(KEY_SIZE_TYPE keySizeType, int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("<0 argument");
+		slots.get(keySizeType).target = count;
+		refill(keySizeType);
+	}
+
+	/**
+	 * Hands out a pair of keys of a size. Every pair is handed out only once.
+	 * 
+	 * @param keySizeType size of the keys.
+	 * @return CryptAsymmKeysPair object containing public and private.
+	 * @throws IllegalStateException if the pool is closed.
+	 */
+	public CryptAsymmKeysPair take(KEY_SIZE_TYPE keySizeType) {
+		if (closed)
+			throw new IllegalStateException("Pool closed");
+		Slot slot = slots.get(keySizeType);
+		CryptAsymmKeysPair pair = slot.pairs.poll();
+		if (pair != null)
+			slot.available.decrementAndGet();
+		else {
+			slot.misses.incrementAndGet();
+			pair = new CryptAsymmKeys(keySizeType, exponentType).generateKeys();
+		}
+		refill(keySizeType);
+		return pair;
+	}
+
+	/**
+	 * @param keySizeType size of the keys.
+	 * @return number of pairs of the size ready to be handed out.
+	 */
+	public int getAvailable(KEY_SIZE_TYPE keySizeType) {
+		return slots.get(keySizeType).available.get();
+	}
+
+	/**
+	 * @param keySizeType size of the keys.
+	 * @return number of times a pair of the size had to be generated on the
+	 *         calling thread because the pool was empty.
+	 */
+	public int getMisses(KEY_SIZE_TYPE keySizeType) {
+		return slots.get(keySizeType).misses.get();
+	}
+
+	/**
+	 * Stops the background threads and, if the pool has a file, saves unused
+	 * pairs to it. Pairs being generated are waited for, so that they are saved
+	 * too. The file is readable by its owner only where the file system supports
+	 * POSIX permissions.
+	 * 
+	 * @throws IOException if the file cannot be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		// Generation cannot be interrupted, so running tasks still finish
+		workers.shutdownNow();
+		try {
+			while (!workers.awaitTermination(1, TimeUnit.MINUTES))
+				;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (persistFile != null)
+			save();
+	}
+
+	private void refill(KEY_SIZE_TYPE keySizeType) {
+		Slot slot = slots.get(keySizeType);
+		while (!closed) {
+			int pending = slot.pending.get();
+			if (slot.available.get() + pending >= slot.target)
+				return;
+			if (slot.pending.compareAndSet(pending, pending + 1)) {
+				try {
+					workers.execute(() -> generate(keySizeType, slot));
+				} catch (RejectedExecutionException e) {
+					// Closed in the meantime
+					slot.pending.decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+
+	private void generate(KEY_SIZE_TYPE keySizeType, Slot slot) {
+		try {
+			if (closed)
+				return;
+			CryptAsymmKeysPair pair = new CryptAsymmKeys(keySizeType, exponentType).generateKeys();
+			slot.pairs.offer(pair);
+			slot.available.incrementAndGet();
+		} finally {
+			slot.pending.decrementAndGet();
+		}
+		refill(keySizeType);
+	}
+
+	// Loaded pairs are removed from the file, so that none is handed out twice
+	// after another restart
+	private void load() throws IOException {
+		for (String line : Files.readAllLines(persistFile, StandardCharsets.UTF_8)) {
+			String[] fields = line.split(FIELD_SEPARATOR);
+			if (fields.length != 3)
+				continue;
+			Slot slot = slots.get(KEY_SIZE_TYPE.valueOf(fields[0]));
+			slot.pairs.offer(new CryptAsymmKeysPair(CryptAsymmPublicKey.createFromString(fields[1]),
+					CryptAsymmPrivateKey.createFromString(fields[2])));
+			slot.available.incrementAndGet();
+		}
+		Files.delete(persistFile);
+	}
+
+	private void save() throws IOException {
+		if (persistFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			// Created anew, so that an existing file does not keep wider permissions
+			Files.deleteIfExists(persistFile);
+			Files.createFile(persistFile,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		List<String> lines = new ArrayList<String>();
+		for (KEY_SIZE_TYPE keySizeType : KEY_SIZE_TYPE.values()) {
+			CryptAsymmKeysPair pair;
+			while ((pair = slots.get(keySizeType).pairs.poll()) != null)
+				lines.add(keySizeType.name() + FIELD_SEPARATOR + pair.getCryptAsymmPublicKey() + FIELD_SEPARATOR
+						+ pair.getCryptAsymmPrivateKey());
+		}
+		Files.write(persistFile, lines, StandardCharsets.UTF_8);
+	}
+
+	private static class Slot {
+		final ConcurrentLinkedQueue<CryptAsymmKeysPair> pairs = new ConcurrentLinkedQueue<CryptAsymmKeysPair>();
+		final AtomicInteger available = new AtomicInteger();
+		final AtomicInteger pending = new AtomicInteger();
+		final AtomicInteger misses = new AtomicInteger();
+		volatile int target;
+	}
+}
@@ -1,7 +1,16 @@
 package pl.polinc.dummycastle.crypt.asymm;
 
 import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class CryptAsymmKeys {
 
@@ -9,7 +18,16 @@ public class CryptAsymmKeys {
 		KEY_SIZE_128, KEY_SIZE_256, KEY_SIZE_512, KEY_SIZE_1024, KEY_SIZE_2048, KEY_SIZE_4096
 	}
 
+	public static enum EXPONENT_TYPE {
+		EXPONENT_RANDOM, EXPONENT_65537
+	}
+
+	// Fixed public exponent - F4
+	static final BigInteger EXPONENT_65537 = BigInteger.valueOf(65537);
+
 	int keySize = 512;
+	EXPONENT_TYPE exponentType = EXPONENT_TYPE.EXPONENT_RANDOM;
+	int primeCount = 2;
 
 	/**
 	 * Creates a CryptAsymmKeys object with key type described by a keySizeType
@@ -34,6 +52,51 @@ public class CryptAsymmKeys {
 
 	}
 
+	/**
+	 * Creates a CryptAsymmKeys object with key type described by a keySizeType
+	 * param and a specific kind of public exponent. With EXPONENT_65537 public key
+	 * operations need just 17 multiplications, so encryption with public keys is
+	 * many times faster, and key generation does not search for an exponent.
+	 * 
+	 * @param keySizeType  one of KEY_SIZE_TYPE types.
+	 * @param exponentType one of EXPONENT_TYPE types. EXPONENT_RANDOM is the
+	 *                     default type.
+	 */
+	public CryptAsymmKeys(KEY_SIZE_TYPE keySizeType, EXPONENT_TYPE exponentType) {
+		this(keySizeType);
+		this.exponentType = exponentType;
+	}
+
+	/**
+	 * Creates a CryptAsymmKeys object generating multi-prime keys - keys whose
+	 * product has more than two primes. The primes are smaller, so they are found
+	 * faster, and private keys decrypt faster, as every exponentiation is done
+	 * modulo one of the primes. More primes make the product easier to factor, so
+	 * 3 primes are allowed from 2048 bits on and 4 primes from 4096 bits on.
+	 * 
+	 * @param keySizeType  one of KEY_SIZE_TYPE types.
+	 * @param exponentType one of EXPONENT_TYPE types.
+	 * @param primeCount   number of primes of the product - 2, 3 or 4.
+	 */
+	public CryptAsymmKeys(KEY_SIZE_TYPE keySizeType, EXPONENT_TYPE exponentType, int primeCount) {
+		this(keySizeType, exponentType);
+		if (primeCount < 2 || primeCount > getMaxPrimeCount(keySizeType))
+			throw new IllegalArgumentException(primeCount + " primes not allowed for " + keySizeType);
+		this.primeCount = primeCount;
+	}
+
+	/**
+	 * @param keySizeType one of KEY_SIZE_TYPE types.
+	 * @return the largest number of primes allowed for the key size.
+	 */
+	public static int getMaxPrimeCount(KEY_SIZE_TYPE keySizeType) {
+		if (keySizeType == KEY_SIZE_TYPE.KEY_SIZE_4096)
+			return 4;
+		if (keySizeType == KEY_SIZE_TYPE.KEY_SIZE_2048)
+			return 3;
+		return 2;
+	}
+
 	/**
 	 * Creates a CryptAsymmKeys object with 512 bit key
 	 * 
@@ -43,27 +106,151 @@ public class CryptAsymmKeys {
 	}
 
 	/**
-	 * Generates keys - both public and private.
+	 * Generates keys - both public and private. The other primes are searched for
+	 * in the background while the first one is searched for on the calling thread.
+	 * On machines with more processors than primes every prime is searched for in
+	 * several windows of candidates at once.
 	 * 
 	 * @return CryptAsymmKeysPair object containing public and private.
 	 */
 	public CryptAsymmKeysPair generateKeys() {
-		Random rand = new Random();
-		BigInteger p = BigInteger.probablePrime(keySize / 2, rand);
-		BigInteger q = BigInteger.probablePrime(keySize / 2, rand);
-		// Calculate products
-		BigInteger n = p.multiply(q);
-		BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+		List<CompletableFuture<BigInteger>> others = new ArrayList<CompletableFuture<BigInteger>>();
+		for (int i = 1; i < primeCount; i++) {
+			int bits = getPrimeSize(i);
+			others.add(CompletableFuture.supplyAsync(() -> searchPrime(bits, null, ForkJoinPool.commonPool())));
+		}
+		BigInteger[] primes = new BigInteger[primeCount];
+		primes[0] = searchPrime(getPrimeSize(0), null, ForkJoinPool.commonPool());
+		try {
+			for (int i = 1; i < primeCount; i++)
+				primes[i] = others.get(i - 1).join();
+			return createPair(primes, null, ForkJoinPool.commonPool());
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Generates keys - both public and private - in the background on the common
+	 * ForkJoinPool. All primes are searched for concurrently.
+	 * 
+	 * @return future of a CryptAsymmKeysPair object containing public and private.
+	 *         Cancelling it stops the search.
+	 */
+	public CompletableFuture<CryptAsymmKeysPair> generateKeysAsync() {
+		return generateKeysAsync(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Generates keys - both public and private - in the background. All primes
+	 * are searched for concurrently.
+	 * 
+	 * @param executor executor to search for the primes and their windows on.
+	 * @return future of a CryptAsymmKeysPair object containing public and private.
+	 *         Cancelling it stops the search.
+	 */
+	public CompletableFuture<CryptAsymmKeysPair> generateKeysAsync(Executor executor) {
+		CompletableFuture<CryptAsymmKeysPair> result = new CompletableFuture<CryptAsymmKeysPair>();
+		List<CompletableFuture<BigInteger>> primes = new ArrayList<CompletableFuture<BigInteger>>(primeCount);
+		for (int i = 0; i < primeCount; i++) {
+			int bits = getPrimeSize(i);
+			primes.add(CompletableFuture.supplyAsync(() -> searchPrime(bits, result, executor), executor));
+		}
+		CompletableFuture.allOf(primes.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+			BigInteger[] found = new BigInteger[primeCount];
+			for (int i = 0; i < primeCount; i++)
+				found[i] = primes.get(i).join();
+			return createPair(found, result, executor);
+		}).whenComplete((pair, e) -> {
+			if (e != null)
+				result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+			else
+				result.complete(pair);
+		});
+		return result;
+	}
+
+	/**
+	 * Generates keys - both public and private - in the background, giving up
+	 * after a timeout.
+	 * 
+	 * @param executor executor to search for the primes on.
+	 * @param timeout  how long to wait for the keys.
+	 * @param unit     unit of the timeout.
+	 * @return future of a CryptAsymmKeysPair object containing public and private.
+	 *         It completes with a TimeoutException if the keys are not ready in
+	 *         time, which also stops the search.
+	 */
+	public CompletableFuture<CryptAsymmKeysPair> generateKeysAsync(Executor executor, long timeout, TimeUnit unit) {
+		return generateKeysAsync(executor).orTimeout(timeout, unit);
+	}
+
+	// The owner is checked between steps, so that a cancelled or timed out
+	// generation stops soon
+	private static void checkOwner(CompletableFuture<?> owner) {
+		if (owner != null && owner.isDone())
+			throw new CancellationException("Key generation stopped");
+	}
+
+	// With a fixed exponent e primes are drawn so that phi is coprime with it. As
+	// e is prime, gcd(e, p - 1) == 1 unless p == 1 mod e. Every prime is searched
+	// for in several windows on the executor, so that the searches of all primes
+	// together keep every processor busy
+	private BigInteger searchPrime(int bits, CompletableFuture<?> owner, Executor executor) {
+		int windows = Math.max(1, Runtime.getRuntime().availableProcessors() / primeCount);
+		BigInteger p;
+		do {
+			checkOwner(owner);
+			p = CryptAsymmPrimes.getDefault().generatePrime(bits, windows, owner, executor);
+		} while (exponentType == EXPONENT_TYPE.EXPONENT_65537 && p.mod(EXPONENT_65537).equals(BigInteger.ONE));
+		return p;
+	}
+
+	// The key size split as evenly as possible between the primes
+	private int getPrimeSize(int index) {
+		return keySize / primeCount + (index < keySize % primeCount ? 1 : 0);
+	}
+
+	private CryptAsymmKeysPair createPair(BigInteger[] primes, CompletableFuture<?> owner, Executor executor) {
+		// Primes must differ. Two primes with their two top bits set always give a
+		// product of the full size - with more of them, the last one is searched
+		// again until they do
+		BigInteger n;
+		while (true) {
+			for (int i = 1; i < primes.length; i++)
+				for (int j = 0; j < i; j++)
+					while (primes[i].equals(primes[j]))
+						primes[i] = searchPrime(getPrimeSize(i), owner, executor);
+			// Calculate products
+			n = BigInteger.ONE;
+			for (BigInteger prime : primes)
+				n = n.multiply(prime);
+			if (n.bitLength() == keySize)
+				break;
+			primes[primes.length - 1] = searchPrime(getPrimeSize(primes.length - 1), owner, executor);
+		}
+		BigInteger phi = BigInteger.ONE;
+		for (BigInteger prime : primes)
+			phi = phi.multiply(prime.subtract(BigInteger.ONE));
 
 		// Generate public and private exponents
 		BigInteger e;
-		do
-			e = new BigInteger(phi.bitLength(), rand);
-		while (e.compareTo(BigInteger.ONE) <= 0 || e.compareTo(phi) >= 0 || !e.gcd(phi).equals(BigInteger.ONE));
+		if (exponentType == EXPONENT_TYPE.EXPONENT_65537)
+			e = EXPONENT_65537;
+		else {
+			Random rand = new SecureRandom();
+			do {
+				checkOwner(owner);
+				e = new BigInteger(phi.bitLength(), rand);
+			} while (e.compareTo(BigInteger.ONE) <= 0 || e.compareTo(phi) >= 0
+					|| !e.gcd(phi).equals(BigInteger.ONE));
+		}
 		BigInteger d = e.modInverse(phi);
 
 		CryptAsymmPublicKey pub = CryptAsymmPublicKey.createFromNums(e, n);
-		CryptAsymmPrivateKey priv = CryptAsymmPrivateKey.createFromNums(d, n);
+		CryptAsymmPrivateKey priv = CryptAsymmPrivateKey.createFromNums(d, n, primes);
 		return new CryptAsymmKeysPair(pub, priv);
 	}
 
@@ -0,0 +1,251 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Modular exponentiation with a fixed odd modulus and a fixed exponent, as
+ * used by a key. Numbers are held in long[] limbs, the lowest first, and
+ * multiplied in the Montgomery form. Everything that depends only on the key -
+ * the limbs of the modulus, its inverse modulo 2^64, R^2 mod modulus and the
+ * sliding window recoding of the exponent - is computed once when the context
+ * is created. A call of modPow() only allocates its table of powers and
+ * scratch arrays - the multiplication loops allocate nothing. Contexts are
+ * immutable and may be shared by any number of threads.
+ */
+final class CryptAsymmMontgomery {
+
+	private final BigInteger modulus;
+	private final BigInteger exponent;
+	// Number of limbs
+	private final int k;
+	private final long[] n;
+	// -n^-1 mod 2^64
+	private final long n0Inv;
+	// R^2 mod n where R = 2^(64 * k) - moves numbers into the Montgomery form
+	private final long[] r2;
+	// Sliding window recoding of the exponent: squarings before a multiplication
+	// and the odd window value to multiply by
+	private final int window;
+	private final int[] squares;
+	private final int[] digits;
+	private final int trailingSquares;
+
+	/**
+	 * @return true if a context can be created for the modulus.
+	 */
+	static boolean supports(BigInteger modulus) {
+		return modulus.testBit(0) && modulus.compareTo(BigInteger.ONE) > 0;
+	}
+
+	/**
+	 * @param modulus  odd modulus, greater than 1.
+	 * @param exponent non-negative exponent.
+	 */
+	CryptAsymmMontgomery(BigInteger modulus, BigInteger exponent) {
+		if (!supports(modulus))
+			throw new IllegalArgumentException("Modulus must be odd and greater than 1");
+		if (exponent.signum() < 0)
+			throw new IllegalArgumentException("Negative exponent");
+		this.modulus = modulus;
+		this.exponent = exponent;
+		this.k = (modulus.bitLength() + 63) >>> 6;
+		this.n = toLimbs(modulus, k);
+		this.n0Inv = -inverse(n[0]);
+		this.r2 = toLimbs(BigInteger.ONE.shiftLeft(128 * k).mod(modulus), k);
+
+		int bits = exponent.bitLength();
+		// Window sizes as in BigInteger.modPow()
+		this.window = bits <= 7 ? 1 : bits <= 25 ? 2 : bits <= 81 ? 3 : bits <= 241 ? 4 : bits <= 673 ? 5 : 6;
+		int[] sq = new int[bits];
+		int[] dg = new int[bits];
+		int steps = 0;
+		int pending = 0;
+		for (int i = bits - 1; i >= 0;) {
+			if (!exponent.testBit(i)) {
+				pending++;
+				i--;
+				continue;
+			}
+			int low = Math.max(i - window + 1, 0);
+			while (!exponent.testBit(low))
+				low++;
+			int value = 0;
+			for (int j = i; j >= low; j--)
+				value = (value << 1) | (exponent.testBit(j) ? 1 : 0);
+			sq[steps] = pending + i - low + 1;
+			dg[steps] = value;
+			steps++;
+			pending = 0;
+			i = low - 1;
+		}
+		this.squares = Arrays.copyOf(sq, steps);
+		this.digits = Arrays.copyOf(dg, steps);
+		this.trailingSquares = pending;
+	}
+
+	BigInteger getModulus() {
+		return modulus;
+	}
+
+	BigInteger getExponent() {
+		return exponent;
+	}
+
+	/**
+	 * @param value value to raise. Values outside of [0, modulus) are reduced
+	 *              first.
+	 * @return value^exponent mod modulus
+	 */
+	BigInteger modPow(BigInteger value) {
+		if (value.signum() < 0 || value.compareTo(modulus) >= 0)
+			value = value.mod(modulus);
+		if (digits.length == 0)
+			return BigInteger.ONE;
+
+		long[] t = new long[k + 1];
+		long[] acc = new long[k];
+		long[] tmp = new long[k];
+		// Odd powers of the value in the Montgomery form
+		long[][] table = new long[1 << (window - 1)][];
+		table[0] = new long[k];
+		mul(toLimbs(value, k), r2, table[0], t);
+		if (table.length > 1) {
+			long[] square = new long[k];
+			mul(table[0], table[0], square, t);
+			for (int i = 1; i < table.length; i++) {
+				table[i] = new long[k];
+				mul(table[i - 1], square, table[i], t);
+			}
+		}
+
+		System.arraycopy(table[digits[0] >>> 1], 0, acc, 0, k);
+		for (int s = 1; s < digits.length; s++) {
+			for (int i = squares[s]; i > 0; i--) {
+				mul(acc, acc, tmp, t);
+				long[] swap = acc;
+				acc = tmp;
+				tmp = swap;
+			}
+			mul(acc, table[digits[s] >>> 1], tmp, t);
+			long[] swap = acc;
+			acc = tmp;
+			tmp = swap;
+		}
+		for (int i = trailingSquares; i > 0; i--) {
+			mul(acc, acc, tmp, t);
+			long[] swap = acc;
+			acc = tmp;
+			tmp = swap;
+		}
+
+		// Out of the Montgomery form
+		long[] one = new long[k];
+		one[0] = 1;
+		mul(acc, one, tmp, t);
+		return fromLimbs(tmp);
+	}
+
+	// out = a * b / R mod n. out may not be a or b. t has k + 1 limbs. Both
+	// products of a round go through one loop (FIOS), and carries are computed
+	// with bit operations - a branch on a random carry would be mispredicted half
+	// the time
+	private void mul(long[] a, long[] b, long[] out, long[] t) {
+		int k = this.k;
+		long[] n = this.n;
+		long n0 = n[0];
+		Arrays.fill(t, 0);
+		for (int i = 0; i < k; i++) {
+			long bi = b[i];
+			long a0 = a[0];
+			long lo = a0 * bi;
+			long s = t[0] + lo;
+			long c1 = mulHigh(a0, bi) + carry(t[0], lo, s);
+			long m = s * n0Inv;
+			// s + m * n[0] is 0 mod 2^64 - only its carry matters
+			long lo2 = m * n0;
+			long c2 = mulHigh(m, n0) + carry(s, lo2, s + lo2);
+			for (int j = 1; j < k; j++) {
+				long aj = a[j];
+				long tj = t[j];
+				lo = aj * bi;
+				long hi = mulHigh(aj, bi);
+				s = tj + lo;
+				hi += carry(tj, lo, s);
+				long s1 = s + c1;
+				c1 = hi + carry(s, c1, s1);
+
+				long nj = n[j];
+				lo2 = m * nj;
+				long hi2 = mulHigh(m, nj);
+				long s2 = s1 + lo2;
+				hi2 += carry(s1, lo2, s2);
+				long s3 = s2 + c2;
+				c2 = hi2 + carry(s2, c2, s3);
+				t[j - 1] = s3;
+			}
+			long top = t[k];
+			s = top + c1;
+			long s1 = s + c2;
+			t[k - 1] = s1;
+			t[k] = carry(top, c1, s) + carry(s, c2, s1);
+		}
+
+		// The result is below 2n - n is subtracted once if it is not below n
+		long borrow = 0;
+		for (int j = 0; j < k; j++) {
+			long tj = t[j];
+			long d = tj - n[j];
+			long d2 = d - borrow;
+			borrow = borrow(tj, n[j], d) | borrow(d, borrow, d2);
+			out[j] = d2;
+		}
+		if (t[k] == 0 && borrow != 0)
+			System.arraycopy(t, 0, out, 0, k);
+	}
+
+	// Carry out of s = a + b
+	private static long carry(long a, long b, long s) {
+		return ((a & b) | ((a | b) & ~s)) >>> 63;
+	}
+
+	// Borrow out of d = a - b
+	private static long borrow(long a, long b, long d) {
+		return ((~a & b) | (~(a ^ b) & d)) >>> 63;
+	}
+
+	// Unsigned high 64 bits of a 128-bit product
+	private static long mulHigh(long a, long b) {
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+
+	// Inverse of an odd number modulo 2^64 by Newton's iteration
+	private static long inverse(long a) {
+		long x = a; // correct to 3 bits
+		for (int i = 0; i < 5; i++)
+			x *= 2 - a * x;
+		return x;
+	}
+
+	private static long[] toLimbs(BigInteger value, int k) {
+		long[] limbs = new long[k];
+		byte[] bytes = value.toByteArray();
+		for (int i = bytes.length - 1, shift = 0, l = 0; i >= 0 && l < k; i--) {
+			limbs[l] |= (bytes[i] & 0xFFL) << shift;
+			shift += 8;
+			if (shift == 64) {
+				shift = 0;
+				l++;
+			}
+		}
+		return limbs;
+	}
+
+	private static BigInteger fromLimbs(long[] limbs) {
+		byte[] bytes = new byte[limbs.length * 8];
+		for (int l = 0, i = bytes.length - 1; l < limbs.length; l++)
+			for (int shift = 0; shift < 64; shift += 8)
+				bytes[i--] = (byte) (limbs[l] >>> shift);
+		return new BigInteger(1, bytes);
+	}
+}
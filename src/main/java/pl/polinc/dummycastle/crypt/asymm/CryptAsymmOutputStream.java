@@ -0,0 +1,84 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmOutputStream;
+import pl.polinc.dummycastle.random.RandomClient;
+
+/**
+ * Encrypts everything written to it into one asymmetric envelope, passing it
+ * to the underlying stream as it goes. The header with the encrypted session
+ * key is written first, then the data encrypted with the session key in chunks,
+ * so memory use does not depend on the size of the data. The result is the
+ * same kind of envelope as from CryptAsymm.encryptStream() and may be decrypted
+ * by CryptAsymm.decryptStream() or CryptAsymmInputStream.
+ */
+public class CryptAsymmOutputStream extends FilterOutputStream {
+
+	private final byte[] header;
+	private final CryptSymmOutputStream body;
+	private boolean headerWritten;
+
+	/**
+	 * Creates a stream encrypting with a key. The session key is made and
+	 * encrypted here - the header is written with the first data, on flush() or
+	 * on close().
+	 * 
+	 * @param out stream to write the envelope to.
+	 * @param key key to encrypt with.
+	 */
+	public CryptAsymmOutputStream(OutputStream out, CryptAsymmKey key) {
+		super(out);
+		// The session key is as long as encryptStream() makes it for data not
+		// shorter than the key
+		String symmKey = RandomClient.generateRandomString(key.getKeySize() / 8, RandomClient.Mode.ALPHANUMERIC,
+				false);
+		BigInteger enc = key.modPow(new BigInteger(symmKey.getBytes()));
+		int gemLen = CryptAsymm.gemSize(key);
+		header = new byte[CryptAsymm.headerSize(gemLen)];
+		CryptAsymm.putHeader(header, gemLen, enc);
+		body = new CryptSymmOutputStream(out, new CryptSymmKey(symmKey));
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		writeHeader();
+		body.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		writeHeader();
+		body.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeHeader();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writeHeader();
+		super.close();
+	}
+
+	/**
+	 * @return number of bytes of data written so far, without the header.
+	 */
+	public long getDataSize() {
+		return body.getKeyPos();
+	}
+
+	private void writeHeader() throws IOException {
+		if (headerWritten)
+			return;
+		headerWritten = true;
+		out.write(header);
+	}
+}
@@ -0,0 +1,210 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Searches for large primes for asymmetric keys. The search starts at a random
+ * odd number and walks a window of candidates after it. A sieve of small primes
+ * crosses out most composites of the window with plain int operations, so only
+ * the rest is tested with Miller-Rabin, which needs modPow. Random numbers come
+ * from SecureRandom. BigInteger.probablePrime() sieves its candidates too, so on
+ * one thread the two take about as long per prime above 128 bits. The search
+ * gets faster by searching several windows in parallel.
+ */
+public class CryptAsymmPrimes {
+
+	// Rounds as in BigInteger.probablePrime() - error probability below 2^-100
+	static final int PRIME_CERTAINTY = 100;
+	// Bound of the small primes sieving candidates of a given size
+	private static final int SIEVE_BOUND_FACTOR = 64;
+	private static final int SIEVE_BOUND = 1 << 17;
+	// Odd primes used to sieve candidates
+	private static final int[] SMALL_PRIMES = smallPrimes(SIEVE_BOUND);
+
+	private static final CryptAsymmPrimes defaultPrimes = new CryptAsymmPrimes(new SecureRandom());
+
+	private final Random rand;
+
+	/**
+	 * Creates a search drawing random numbers from a specific source.
+	 * 
+	 * @param rand source of random numbers. SecureRandom should be used for real
+	 *             keys.
+	 */
+	public CryptAsymmPrimes(Random rand) {
+		this.rand = rand;
+	}
+
+	/**
+	 * @return shared search using a SecureRandom seeded by the system.
+	 */
+	public static CryptAsymmPrimes getDefault() {
+		return defaultPrimes;
+	}
+
+	/**
+	 * Finds a random probable prime of exactly the given bit length. Its two
+	 * highest bits are set, so the product of two such primes has exactly twice
+	 * the bit length.
+	 * 
+	 * @param bits bit length of the prime. At least 16.
+	 * @return the prime.
+	 */
+	public BigInteger generatePrime(int bits) {
+		return generatePrime(bits, null);
+	}
+
+	/**
+	 * Finds a random probable prime of exactly the given bit length searching
+	 * several windows of candidates in parallel. The calling thread searches one
+	 * window and the others are searched on the common ForkJoinPool. The first
+	 * prime found wins and the other searches stop.
+	 * 
+	 * @param bits        bit length of the prime. At least 16.
+	 * @param parallelism number of windows searched at the same time.
+	 * @return the prime.
+	 */
+	public BigInteger generatePrime(int bits, int parallelism) {
+		return generatePrime(bits, parallelism, null, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Searches several windows in parallel as above, stopping when the owner is
+	 * done.
+	 * 
+	 * @param owner    future to check for cancellation. May be null.
+	 * @param executor executor the windows other than the first one are searched
+	 *                 on.
+	 * @throws CancellationException if the owner gets done first.
+	 */
+	BigInteger generatePrime(int bits, int parallelism, CompletableFuture<?> owner, Executor executor) {
+		if (parallelism <= 1)
+			return generatePrime(bits, owner);
+		if (bits < 16)
+			throw new IllegalArgumentException("Prime size must be at least 16 bits");
+		CompletableFuture<BigInteger> result = new CompletableFuture<BigInteger>();
+		if (owner != null)
+			owner.whenComplete((v, e) -> result.cancel(false));
+		Runnable window = () -> {
+			try {
+				result.complete(generatePrime(bits, result));
+			} catch (CancellationException e) {
+				// Another window has won or the owner is done
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		};
+		for (int i = 1; i < parallelism; i++) {
+			try {
+				executor.execute(window);
+			} catch (RejectedExecutionException e) {
+				// The calling thread searches anyway
+				break;
+			}
+		}
+		// The calling thread returns only once the result is done
+		window.run();
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			throw (RuntimeException) e.getCause();
+		}
+	}
+
+	/**
+	 * Finds a random probable prime, checking between candidates whether the
+	 * owner is already done.
+	 * 
+	 * @param owner future to check for cancellation. May be null.
+	 * @throws CancellationException if the owner gets done first.
+	 */
+	BigInteger generatePrime(int bits, CompletableFuture<?> owner) {
+		if (bits < 16)
+			throw new IllegalArgumentException("Prime size must be at least 16 bits");
+		// Odd candidates start + 2 * i are sieved for i < window
+		int window = Math.max(1024, bits);
+		long[] composite = new long[(window + 63) >>> 6];
+		while (true) {
+			checkOwner(owner);
+			BigInteger start = new BigInteger(bits, rand).setBit(bits - 1).setBit(bits - 2).setBit(0);
+			sieve(start, bits, window, composite);
+			for (int i = 0; i < window; i++) {
+				if ((composite[i >>> 6] & (1L << i)) != 0)
+					continue;
+				checkOwner(owner);
+				BigInteger candidate = start.add(BigInteger.valueOf(2L * i));
+				if (candidate.bitLength() != bits)
+					break;
+				if (candidate.isProbablePrime(PRIME_CERTAINTY))
+					return candidate;
+			}
+		}
+	}
+
+	// Marks candidates divisible by any of the small primes. Bigger primes sieve
+	// out more candidates but cost more to set up, so their bound grows with the
+	// size of the candidates
+	private static void sieve(BigInteger start, int bits, int window, long[] composite) {
+		Arrays.fill(composite, 0);
+		int[] words = toWords(start);
+		int limit = Math.min(Math.max(bits * SIEVE_BOUND_FACTOR, 1 << 12), SIEVE_BOUND);
+		for (int p : SMALL_PRIMES) {
+			if (p >= limit)
+				break;
+			// start mod p from its 32-bit words
+			long r = 0;
+			for (int w : words)
+				r = ((r << 32) | (w & 0xffffffffL)) % p;
+			// start + 2i == 0 (mod p) <=> i == -r * 2^-1 (mod p)
+			int i = (int) ((p - r) % p * ((p + 1) >>> 1) % p);
+			for (; i < window; i += p)
+				composite[i >>> 6] |= 1L << i;
+		}
+	}
+
+	// Big-endian 32-bit words of a positive number
+	private static int[] toWords(BigInteger num) {
+		byte[] bytes = num.toByteArray();
+		int[] words = new int[(bytes.length + 3) >>> 2];
+		for (int i = bytes.length - 1, shift = 0, w = words.length - 1; i >= 0; i--) {
+			words[w] |= (bytes[i] & 0xff) << shift;
+			shift += 8;
+			if (shift == 32) {
+				shift = 0;
+				w--;
+			}
+		}
+		return words;
+	}
+
+	private static void checkOwner(CompletableFuture<?> owner) {
+		if (owner != null && owner.isDone())
+			throw new CancellationException("Prime search stopped");
+	}
+
+	private static int[] smallPrimes(int limit) {
+		boolean[] notPrime = new boolean[limit];
+		int count = 0;
+		for (int i = 3; i < limit; i += 2) {
+			if (notPrime[i])
+				continue;
+			count++;
+			for (long j = (long) i * i; j < limit; j += 2 * i)
+				notPrime[(int) j] = true;
+		}
+		int[] primes = new int[count];
+		for (int i = 3, n = 0; i < limit; i += 2)
+			if (!notPrime[i])
+				primes[n++] = i;
+		return primes;
+	}
+}
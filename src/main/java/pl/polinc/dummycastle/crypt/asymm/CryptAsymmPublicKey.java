@@ -2,12 +2,16 @@ package pl.polinc.dummycastle.crypt.asymm;
 
 import java.math.BigInteger;
 
+import pl.polinc.dummycastle.coding.Base64;
+
 public class CryptAsymmPublicKey implements CryptAsymmKey {
 	BigInteger e;
 	BigInteger n;
 	int keySize;
+	// Created on the first use of the Montgomery engine
+	private volatile CryptAsymmMontgomery montgomery;
 
-	private static String KEY_SEPARATOR = "=@=";
+	private static String KEY_SEPARATOR = CryptAsymmKeyFormat.KEY_SEPARATOR;
 
 	/**
 	 * @param e
@@ -16,7 +20,8 @@ public class CryptAsymmPublicKey implements CryptAsymmKey {
 	private CryptAsymmPublicKey(BigInteger e, BigInteger n) {
 		this.e = e;
 		this.n = n;
-		this.keySize = e.bitLength();
+		// Size of the product - the exponent may be much shorter
+		this.keySize = n.bitLength();
 
 	}
 
@@ -34,18 +39,76 @@ public class CryptAsymmPublicKey implements CryptAsymmKey {
 
 	/**
 	 * Creates a private key object from two elements - an exponent and a product.
+	 * Recently parsed strings are taken from a cache, and the text and the Base64
+	 * of one key share one instance.
 	 * 
 	 * @param publicKeyNumberData an exponent and a product of the key represented
-	 *                            as one string.
+	 *                            as one string - the decimal text of toString()
+	 *                            or the Base64 of toBase64().
 	 * @return the key
 	 */
 	static public CryptAsymmPublicKey createFromString(String publicKeyNumberData) {
-		String[] data = publicKeyNumberData.split(KEY_SEPARATOR);
+		return CryptAsymmKeyCache.shared.get(publicKeyNumberData, CryptAsymmPublicKey.class,
+				CryptAsymmPublicKey::parse);
+	}
+
+	/**
+	 * Creates a public key object from its binary form made by toBytes().
+	 * 
+	 * @param publicKeyBytes the key in the binary form.
+	 * @return the key
+	 */
+	static public CryptAsymmPublicKey createFromBytes(byte[] publicKeyBytes) {
+		return CryptAsymmKeyCache.shared.intern(fromBytes(publicKeyBytes));
+	}
+
+	/**
+	 * Retrieves the cache used by createFromString() and createFromBytes(). It is
+	 * shared with private keys. May be used to change its limit or to check its
+	 * statistics.
+	 * 
+	 * @return the cache.
+	 */
+	static public CryptAsymmKeyCache getCache() {
+		return CryptAsymmKeyCache.shared;
+	}
+
+	private static CryptAsymmPublicKey parse(String publicKeyNumberData) {
+		if (!CryptAsymmKeyFormat.isText(publicKeyNumberData))
+			return fromBytes(Base64.decode(publicKeyNumberData));
+		String[] data = CryptAsymmKeyFormat.split(publicKeyNumberData);
 		BigInteger e = new BigInteger(data[0]);
 		BigInteger n = new BigInteger(data[1]);
 		return new CryptAsymmPublicKey(e, n);
 	}
 
+	private static CryptAsymmPublicKey fromBytes(byte[] publicKeyBytes) {
+		BigInteger[] nums = CryptAsymmKeyFormat.fromBytes(publicKeyBytes);
+		if (publicKeyBytes[0] != CryptAsymmKeyFormat.KEY_PUBLIC || nums.length != 2)
+			throw new IllegalArgumentException("Not a public key");
+		return new CryptAsymmPublicKey(nums[0], nums[1]);
+	}
+
+	/**
+	 * Binary representation of the key. Much shorter and faster to parse than the
+	 * string.
+	 * 
+	 * @return key as bytes.
+	 */
+	public byte[] toBytes() {
+		return CryptAsymmKeyFormat.toBytes(CryptAsymmKeyFormat.KEY_PUBLIC, e, n);
+	}
+
+	/**
+	 * Base64 of the binary representation of the key. Accepted by
+	 * createFromString().
+	 * 
+	 * @return key as Base64 string.
+	 */
+	public String toBase64() {
+		return Base64.toBase64String(toBytes());
+	}
+
 	/**
 	 * String representation of the key. Includes both the exponent and the product.
 	 * 
@@ -73,6 +136,26 @@ public class CryptAsymmPublicKey implements CryptAsymmKey {
 		return n;
 	}
 
+	/**
+	 * Raises a value to the exponent of the key modulo its product, with the
+	 * engine chosen by CryptAsymm.setModPowType().
+	 * 
+	 * @param value value to raise. Must be smaller than the product.
+	 * @return value^e mod n
+	 */
+	@Override
+	public BigInteger modPow(BigInteger value) {
+		if (CryptAsymm.getModPowType() == CryptAsymm.MODPOW_TYPE.MODPOW_MONTGOMERY
+				&& CryptAsymmMontgomery.supports(n)) {
+			CryptAsymmMontgomery context = montgomery;
+			// A race at worst creates the context twice
+			if (context == null)
+				montgomery = context = new CryptAsymmMontgomery(n, e);
+			return context.modPow(value);
+		}
+		return value.modPow(e, n);
+	}
+
 	/**
 	 * Key size of the key.
 	 * 
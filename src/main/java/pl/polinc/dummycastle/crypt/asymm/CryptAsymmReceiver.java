@@ -0,0 +1,109 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+
+/**
+ * Receiving side of sessions started by CryptAsymmSender. The session key of a
+ * session is recovered with the private key once, from the first envelope with
+ * the gem, and kept for its following envelopes. Envelopes of
+ * CryptAsymm.encryptStream() are accepted too. Session keys of the least
+ * recently used sessions are dropped when there are too many of them. The
+ * receiver is thread safe.
+ */
+public class CryptAsymmReceiver {
+
+	/**
+	 * Default number of sessions kept.
+	 */
+	public static final int DEFAULT_MAX_SESSIONS = 64;
+
+	private final CryptAsymmKey key;
+	private final int maxSessions;
+	private final LinkedHashMap<Long, CryptAsymmClient> sessions;
+
+	/**
+	 * Creates a receiver keeping a default number of sessions.
+	 * 
+	 * @param key private key of the recipient.
+	 */
+	public CryptAsymmReceiver(CryptAsymmKey key) {
+		this(key, DEFAULT_MAX_SESSIONS);
+	}
+
+	/**
+	 * Creates a receiver keeping a specific number of sessions.
+	 * 
+	 * @param key         private key of the recipient.
+	 * @param maxSessions number of sessions kept.
+	 */
+	public CryptAsymmReceiver(CryptAsymmKey key, int maxSessions) {
+		if (maxSessions < 1)
+			throw new IllegalArgumentException("<1 argument");
+		this.key = key;
+		this.maxSessions = maxSessions;
+		this.sessions = new LinkedHashMap<Long, CryptAsymmClient>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CryptAsymmClient> eldest) {
+				return size() > CryptAsymmReceiver.this.maxSessions;
+			}
+		};
+	}
+
+	/**
+	 * Decrypts an envelope.
+	 * 
+	 * @param envelope envelope of CryptAsymmSender or CryptAsymm.encryptStream().
+	 * @return plain data.
+	 * @throws IllegalStateException if the envelope has no gem and belongs to a
+	 *                               session not known or already dropped. The
+	 *                               sender may be asked to attach the gem again
+	 *                               with CryptAsymmSender.attachGem().
+	 */
+	public byte[] decrypt(byte[] envelope) {
+		if (envelope.length == 0 || envelope[0] != CryptAsymm.ENVELOPE_SESSION)
+			return CryptAsymm.decryptStream(envelope, key);
+
+		CryptAsymm.checkLength(envelope, 1, 8);
+		long id = ((long) CryptAsymm.getInt(envelope, 1) << 32) | (CryptAsymm.getInt(envelope, 5) & 0xFFFFFFFFL);
+		long keyPos = CryptAsymm.getVarLong(envelope, 9);
+		int off = 9 + CryptAsymm.varLongSize(keyPos);
+		int gemLen = CryptAsymm.getVarInt(envelope, off);
+		off += CryptAsymm.varIntSize(gemLen);
+		int dataOff = CryptAsymm.checkLength(envelope, off, gemLen);
+
+		CryptAsymmClient client;
+		synchronized (sessions) {
+			client = sessions.get(id);
+		}
+		if (client == null) {
+			if (gemLen == 0)
+				throw new IllegalStateException("Unknown session " + Long.toHexString(id));
+			// Recovered outside of the lock - a concurrent first envelope at worst
+			// does the modPow twice
+			CryptSymmKey symmKey = CryptAsymm.decapsulate(new BigInteger(1, envelope, off, gemLen), key);
+			client = new CryptAsymmClient(symmKey);
+			synchronized (sessions) {
+				sessions.put(id, client);
+			}
+		}
+
+		byte[] plainData = new byte[envelope.length - dataOff];
+		client.crypt(envelope, dataOff, plainData.length, plainData, 0, keyPos);
+		return plainData;
+	}
+
+	/**
+	 * @return number of sessions kept at the moment.
+	 */
+	public int getSessionCount() {
+		synchronized (sessions) {
+			return sessions.size();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+import pl.polinc.dummycastle.random.RandomClient;
+
+/**
+ * Sending side of a session with one recipient. Instead of a new session key
+ * and a modPow for every message, as CryptAsymm.encryptStream() does, one
+ * session key is encrypted with the public key of the recipient and reused for
+ * a number of messages or a time, after which a new one is made. Messages of a
+ * session are encrypted at consecutive positions of the keystream. Like every
+ * keystream of the library it repeats every lcm(length of the session key, 256)
+ * bytes - 256 bytes for 2048-bit keys - so later messages of a session reuse
+ * keystream bytes of earlier ones.
+ * 
+ * The first envelope of every session key carries its gem and so does every
+ * envelope after a given number of messages or after attachGem() is called.
+ * The others carry only the id of the session. The recipient decrypts them
+ * with a CryptAsymmReceiver, which needs an envelope with the gem before the
+ * others - if it was lost or the receiver dropped the session, it can decrypt
+ * the session again from the next envelope with the gem. The sender is thread
+ * safe.
+ */
+public class CryptAsymmSender {
+
+	/**
+	 * Default number of messages encrypted with one session key.
+	 */
+	public static final int DEFAULT_MAX_MESSAGES = 1000;
+	/**
+	 * Default time a session key is used for in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_AGE = 10 * 60 * 1000;
+	/**
+	 * Default number of messages after which the gem is attached again.
+	 */
+	public static final int DEFAULT_GEM_INTERVAL = 16;
+
+	private static final SecureRandom idRandom = new SecureRandom();
+
+	private final CryptAsymmKey key;
+	private final int maxMessages;
+	private final long maxAgeNanos;
+	private final int gemInterval;
+
+	private Session session;
+	private boolean gemRequested;
+
+	/**
+	 * Creates a sender with default limits of a session.
+	 * 
+	 * @param key public key of the recipient.
+	 */
+	public CryptAsymmSender(CryptAsymmKey key) {
+		this(key, DEFAULT_MAX_MESSAGES, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * Creates a sender with specific limits of a session.
+	 * 
+	 * @param key         public key of the recipient.
+	 * @param maxMessages number of messages encrypted with one session key.
+	 * @param maxAge      time a session key is used for in milliseconds.
+	 */
+	public CryptAsymmSender(CryptAsymmKey key, int maxMessages, long maxAge) {
+		this(key, maxMessages, maxAge, DEFAULT_GEM_INTERVAL);
+	}
+
+	/**
+	 * Creates a sender with specific limits of a session and a specific interval
+	 * of attaching the gem.
+	 * 
+	 * @param key         public key of the recipient.
+	 * @param maxMessages number of messages encrypted with one session key.
+	 * @param maxAge      time a session key is used for in milliseconds.
+	 * @param gemInterval number of messages after which the gem is attached
+	 *                    again. 1 attaches it to every message.
+	 */
+	public CryptAsymmSender(CryptAsymmKey key, int maxMessages, long maxAge, int gemInterval) {
+		if (maxMessages < 1 || maxAge < 0 || gemInterval < 1)
+			throw new IllegalArgumentException("Wrong session limits");
+		this.key = key;
+		this.maxMessages = maxMessages;
+		this.maxAgeNanos = maxAge * 1000000;
+		this.gemInterval = gemInterval;
+	}
+
+	/**
+	 * Encrypts a message with the current session key, making a new one first if
+	 * the current one has reached its limits.
+	 * 
+	 * @param plainData the message.
+	 * @return envelope of the message.
+	 */
+	public byte[] encrypt(byte[] plainData) {
+		Session current;
+		long keyPos;
+		boolean withGem;
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (session == null || session.messages >= maxMessages || now - session.created > maxAgeNanos)
+				session = newSession(now);
+			current = session;
+			withGem = current.messages % gemInterval == 0 || gemRequested;
+			gemRequested = false;
+			current.messages++;
+			keyPos = current.keyPos;
+			current.keyPos += plainData.length;
+		}
+
+		// Envelope: version byte, 8-byte session id, varint key position, varint
+		// length of the gem - 0 if it is not attached - gem, data
+		int gemLen = withGem ? current.gem.length : 0;
+		int dataOff = 1 + 8 + CryptAsymm.varLongSize(keyPos) + CryptAsymm.varIntSize(gemLen) + gemLen;
+		byte[] envelope = new byte[dataOff + plainData.length];
+		envelope[0] = CryptAsymm.ENVELOPE_SESSION;
+		CryptAsymm.putInt(envelope, 1, (int) (current.id >>> 32));
+		CryptAsymm.putInt(envelope, 5, (int) current.id);
+		int off = CryptAsymm.putVarLong(envelope, 9, keyPos);
+		off = CryptAsymm.putVarInt(envelope, off, gemLen);
+		System.arraycopy(current.gem, 0, envelope, off, gemLen);
+		//
+		current.client.crypt(plainData, 0, plainData.length, envelope, dataOff, keyPos);
+		return envelope;
+	}
+
+	/**
+	 * Attaches the gem to the next message, e.g. when the recipient reports that
+	 * it does not know the session.
+	 */
+	public synchronized void attachGem() {
+		gemRequested = true;
+	}
+
+	/**
+	 * Makes a new session key for the next message, whatever the limits.
+	 */
+	public synchronized void rotate() {
+		session = null;
+	}
+
+	// The session key is made the same way as by CryptAsymm.encryptStream()
+	private Session newSession(long now) {
+		int keySize = key.getKeySize() / 8;
+		String symmKey = RandomClient.generateRandomString(keySize, RandomClient.Mode.ALPHANUMERIC, false);
+		BigInteger enc = key.modPow(new BigInteger(symmKey.getBytes()));
+		byte[] gem = new byte[(key.getProduct().bitLength() + 7) / 8];
+		CryptAsymm.putMagnitude(gem, 0, gem.length, enc);
+		return new Session(idRandom.nextLong(), new CryptAsymmClient(new CryptSymmKey(symmKey)), gem, now);
+	}
+
+	private static class Session {
+		final long id;
+		final CryptAsymmClient client;
+		final byte[] gem;
+		final long created;
+		int messages;
+		long keyPos;
+
+		Session(long id, CryptAsymmClient client, byte[] gem, long created) {
+			this.id = id;
+			this.client = client;
+			this.gem = gem;
+			this.created = created;
+		}
+	}
+}
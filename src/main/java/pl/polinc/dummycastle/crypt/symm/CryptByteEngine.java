@@ -0,0 +1,32 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+/**
+ * Crypts one byte at a time walking the keystream schedule of the key.
+ */
+public class CryptByteEngine extends CryptEngine {
+
+	@Override
+	public void crypt(byte[] src, int srcOff, byte[] dst, int dstOff, int len, CryptSymmKey key, long keyPos) {
+		if (len <= 0)
+			return;
+		byte[] keyStream = key.getKeyStream(len);
+		if (keyStream == null) {
+			cryptByKeyAt(src, srcOff, dst, dstOff, len, key, keyPos);
+			return;
+		}
+		int period = keyStream.length;
+		int k = (int) (keyPos % period);
+		int t = 0;
+		// The schedule is walked in runs up to its end, so the inner loop has
+		// neither division nor branch
+		while (t < len) {
+			int run = Math.min(len - t, period - k);
+			int s = srcOff + t;
+			int d = dstOff + t;
+			for (int i = 0; i < run; i++)
+				dst[d + i] = (byte) (src[s + i] ^ keyStream[k + i]);
+			t += run;
+			k = 0;
+		}
+	}
+}
@@ -1,8 +1,15 @@
 package pl.polinc.dummycastle.crypt.symm;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
 public class CryptClient {
 
 	CryptSymmKey cryptSymmKey;
+	CryptEngine cryptEngine = CryptEngine.getDefault();
+	// Najmniejszy zakres szyfrowany przez jedno zadanie
+	private static final int MIN_RANGE_SIZE = 256 * 1024;
 
 	// Domyslae - prosty algorytw XOR
 	public CryptClient(CryptSymmKey cryptSymmKey) {
@@ -10,6 +17,12 @@ public class CryptClient {
 
 	}
 
+	// Z wybranym silnikiem XOR
+	public CryptClient(CryptSymmKey cryptSymmKey, CryptEngine cryptEngine) {
+		this.cryptSymmKey = cryptSymmKey;
+		this.cryptEngine = cryptEngine;
+	}
+
 //Dla recznego ustawienia 
 	public CryptClient() {
 
@@ -27,6 +40,12 @@ public class CryptClient {
 		return cryptFrom(inputStr, keyPos);
 	}
 
+	// Bez hexa, dla danych ponad 2GB
+	public byte[] encryptFrom(byte[] inputStr, long keyPos) {
+
+		return cryptFrom(inputStr, keyPos);
+	}
+
 	public byte[] decrypt(byte[] inputStr) {
 
 		return crypt(inputStr);
@@ -37,48 +56,87 @@ public class CryptClient {
 		return cryptFrom(inputStr, keyPos);
 	}
 
+	public byte[] decryptFrom(byte[] inputStr, long keyPos) {
+
+		return cryptFrom(inputStr, keyPos);
+	}
+
 	public byte[] crypt(byte[] toEnc) {
-		int t = 0;
 		byte[] tog = new byte[toEnc.length];
-		// if(keyBytes[t%keySize]>0) {
-		while (t < toEnc.length) {
-			int a = toEnc[t];
-			int c = a ^ cryptSymmKey.getKeyAt(t);
-			byte d = (byte) c;
-			tog[t] = d;
-			// if(t<10)
-			// log.debug(t+":"+a+"_"+new String(Hex.encode(new
-			// byte[]{d}))+"_"+keyStr.charAt(t%keySize)+"_"+c+"_"+keyStr+"_"+keySize);
-			t++;
-
-			// }
-
-		}
+		cryptRange(toEnc, 0, tog, 0, toEnc.length, 0);
 		//
 		return tog;
 	}
 
 	public byte[] cryptFrom(byte[] toEnc, int keyPos) {
-		int t = 0;
-		byte[] tog = new byte[toEnc.length];
-		// if(keyBytes[t%keySize]>0) {
-		while (t < toEnc.length) {
-			int a = toEnc[t];
-			int c = a ^ cryptSymmKey.getKeyAt(t + keyPos);
-			byte d = (byte) c;
-			tog[t] = d;
-			// if(t<10)
-			// log.debug(t+":"+a+"_"+new String(Hex.encode(new
-			// byte[]{d}))+"_"+keyStr.charAt(t%keySize)+"_"+c+"_"+keyStr+"_"+keySize);
-			t++;
-
-			// }
+		return cryptFrom(toEnc, (long) keyPos);
+	}
 
-		}
+	public byte[] cryptFrom(byte[] toEnc, long keyPos) {
+		byte[] tog = new byte[toEnc.length];
+		cryptRange(toEnc, 0, tog, 0, toEnc.length, keyPos);
 		//
 		return tog;
 	}
 
+//////////////XOR DO PODANEJ TABLICY LUB BUFORA
+	/**
+	 * Crypts len bytes of src into dst without allocating anything. Large ranges
+	 * are crypted in parallel like in crypt(byte[]).
+	 * 
+	 * @param src    data to crypt.
+	 * @param srcOff offset of the data in src.
+	 * @param len    number of bytes to crypt.
+	 * @param dst    array for the result. May be the same as src.
+	 * @param dstOff offset of the result in dst.
+	 * @param keyPos starting position of the key.
+	 */
+	public void crypt(byte[] src, int srcOff, int len, byte[] dst, int dstOff, long keyPos) {
+		checkRange(src, srcOff, len, dst, dstOff);
+		cryptRange(src, srcOff, dst, dstOff, len, keyPos);
+	}
+
+	/**
+	 * Crypts remaining bytes of src into dst without allocating anything. Heap and
+	 * direct buffers are supported. Positions of both buffers are advanced. Large
+	 * heap buffers are crypted in parallel like arrays.
+	 * 
+	 * @param src    data to crypt.
+	 * @param dst    buffer for the result. May be the same as src.
+	 * @param keyPos starting position of the key.
+	 */
+	public void crypt(ByteBuffer src, ByteBuffer dst, long keyPos) {
+		int len = src.remaining();
+		if (!src.hasArray() || !dst.hasArray() || len < CryptSymm.getParallelThreshold()) {
+			cryptEngine.crypt(src, dst, cryptSymmKey, keyPos);
+			return;
+		}
+		if (dst.remaining() < len)
+			throw new BufferOverflowException();
+		cryptRange(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(),
+				len, keyPos);
+		src.position(src.position() + len);
+		if (dst != src)
+			dst.position(dst.position() + len);
+	}
+
+	// Duze tablice dzielone na zakresy i szyfrowane rownolegle
+	void cryptRange(byte[] src, int srcOff, byte[] dst, int dstOff, int len, long keyPos) {
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		if (len < CryptSymm.getParallelThreshold() || parallelism < 2) {
+			cryptEngine.crypt(src, srcOff, dst, dstOff, len, cryptSymmKey, keyPos);
+			return;
+		}
+		int leafSize = Math.max(MIN_RANGE_SIZE, len / (parallelism * 4));
+		ForkJoinPool.commonPool()
+				.invoke(new CryptRangeTask(src, srcOff, dst, dstOff, len, cryptSymmKey, keyPos, cryptEngine, leafSize));
+	}
+
+	static void checkRange(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+		if (srcOff < 0 || dstOff < 0 || len < 0 || len > src.length - srcOff || len > dst.length - dstOff)
+			throw new IndexOutOfBoundsException("Range out of bounds");
+	}
+
 //////////////XOR W TEN SAMEJ TABLICY 
 	public void encryptInside(byte[] inputStr) {
 		cryptInside(inputStr);
@@ -90,19 +148,7 @@ public class CryptClient {
 
 	// Koduje do tej same tablicy nadpisujeac ja
 	public void cryptInside(byte[] toEnc) {
-		int t = 0;
-
-		// if(keyBytes[t%keySize]>0)
-		{
-			while (t < toEnc.length) {
-				int a = toEnc[t];
-				int c = a ^ cryptSymmKey.getKeyAt(t);
-				byte d = (byte) c;
-				toEnc[t] = d;
-				t++;
-			}
-
-		}
+		cryptRange(toEnc, 0, toEnc, 0, toEnc.length, 0);
 	}
 
 }
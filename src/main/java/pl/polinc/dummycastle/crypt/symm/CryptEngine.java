@@ -0,0 +1,158 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+public abstract class CryptEngine {
+
+	public static enum ENGINE_TYPE {
+		ENGINE_BYTE, ENGINE_WORD, ENGINE_VECTOR
+	}
+
+	/**
+	 * Engine used when none is given - by CryptSymm, CryptClient, the streams,
+	 * readers, writers, channels and files. Engines differ only in speed.
+	 * ENGINE_WORD is faster than ENGINE_BYTE from a few bytes on and falls back to
+	 * it on JVMs that lack support for it. ENGINE_VECTOR needs an incubator module
+	 * and is slower than ENGINE_WORD below about 1 KB.
+	 */
+	public static final ENGINE_TYPE DEFAULT_ENGINE_TYPE = ENGINE_TYPE.ENGINE_WORD;
+
+	private static final CryptEngine BYTE_ENGINE = new CryptByteEngine();
+	private static CryptEngine wordEngine;
+	private static CryptEngine vectorEngine;
+
+	/**
+	 * XORs len bytes of src with the keystream of the key starting at keyPos and
+	 * stores them in dst. src and dst may be the same array as long as the ranges
+	 * are the same or do not overlap.
+	 * 
+	 * @param src    data to crypt.
+	 * @param srcOff offset of the data in src.
+	 * @param dst    array for the result.
+	 * @param dstOff offset of the result in dst.
+	 * @param len    number of bytes to crypt.
+	 * @param key    key to crypt with.
+	 * @param keyPos starting position of the key.
+	 */
+	public abstract void crypt(byte[] src, int srcOff, byte[] dst, int dstOff, int len, CryptSymmKey key,
+			long keyPos);
+
+	/**
+	 * XORs remaining bytes of src with the keystream of the key starting at keyPos
+	 * and puts them into dst. Positions of both buffers are advanced by the number
+	 * of bytes crypted. Buffers may be heap or direct ones and src may be the same
+	 * buffer as dst.
+	 * 
+	 * @param src    data to crypt.
+	 * @param dst    buffer for the result.
+	 * @param key    key to crypt with.
+	 * @param keyPos starting position of the key.
+	 */
+	public void crypt(ByteBuffer src, ByteBuffer dst, CryptSymmKey key, long keyPos) {
+		int len = src.remaining();
+		if (dst.remaining() < len)
+			throw new BufferOverflowException();
+
+		if (src.hasArray() && dst.hasArray())
+			crypt(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(),
+					len, key, keyPos);
+		else
+			cryptBuffers(src, src.position(), dst, dst.position(), len, key, keyPos);
+
+		src.position(src.position() + len);
+		if (dst != src)
+			dst.position(dst.position() + len);
+	}
+
+	/**
+	 * Crypts buffers that are not backed by accessible arrays, i.e. direct or
+	 * read-only ones. Positions of the buffers are not changed.
+	 */
+	protected void cryptBuffers(ByteBuffer src, int srcPos, ByteBuffer dst, int dstPos, int len, CryptSymmKey key,
+			long keyPos) {
+		if (len <= 0)
+			return;
+		byte[] keyStream = key.getKeyStream(len);
+		if (keyStream == null) {
+			for (int i = 0; i < len; i++)
+				dst.put(dstPos + i, (byte) (src.get(srcPos + i) ^ key.getKeyAt(keyPos + i)));
+			return;
+		}
+		int period = keyStream.length;
+		int k = (int) (keyPos % period);
+		int t = 0;
+		while (t < len) {
+			int run = Math.min(len - t, period - k);
+			int s = srcPos + t;
+			int d = dstPos + t;
+			for (int i = 0; i < run; i++)
+				dst.put(d + i, (byte) (src.get(s + i) ^ keyStream[k + i]));
+			t += run;
+			k = 0;
+		}
+	}
+
+	// Keys without a schedule are crypted through getKeyAt()
+	static void cryptByKeyAt(byte[] src, int srcOff, byte[] dst, int dstOff, int len, CryptSymmKey key,
+			long keyPos) {
+		for (int i = 0; i < len; i++)
+			dst[dstOff + i] = (byte) (src[srcOff + i] ^ key.getKeyAt(keyPos + i));
+	}
+
+	/**
+	 * Retrieves an engine of the given type. All engines produce the same output.
+	 * If the JVM lacks support for the engine, ENGINE_VECTOR falls back to
+	 * ENGINE_WORD and ENGINE_WORD falls back to ENGINE_BYTE.
+	 * 
+	 * @param engineType one of ENGINE_TYPE types.
+	 * @return the engine.
+	 */
+	public static CryptEngine getEngine(ENGINE_TYPE engineType) {
+		if (engineType == ENGINE_TYPE.ENGINE_VECTOR) {
+			if (vectorEngine == null)
+				vectorEngine = loadEngine("pl.polinc.dummycastle.crypt.symm.CryptVectorEngine",
+						ENGINE_TYPE.ENGINE_WORD);
+			return vectorEngine;
+		} else if (engineType == ENGINE_TYPE.ENGINE_WORD) {
+			if (wordEngine == null)
+				wordEngine = loadEngine("pl.polinc.dummycastle.crypt.symm.CryptWordEngine", ENGINE_TYPE.ENGINE_BYTE);
+			return wordEngine;
+		}
+
+		return BYTE_ENGINE;
+	}
+
+	/**
+	 * Checks whether the JVM supports an engine of the given type, i.e.
+	 * getEngine() does not fall back to another engine.
+	 * 
+	 * @param engineType one of ENGINE_TYPE types.
+	 * @return true if the engine is supported.
+	 */
+	public static boolean isAvailable(ENGINE_TYPE engineType) {
+		CryptEngine engine = getEngine(engineType);
+		if (engineType == ENGINE_TYPE.ENGINE_VECTOR)
+			return engine != getEngine(ENGINE_TYPE.ENGINE_WORD);
+		else if (engineType == ENGINE_TYPE.ENGINE_WORD)
+			return engine != BYTE_ENGINE;
+		return true;
+	}
+
+	// Engines needing optional JVM features are loaded by name, so that the
+	// others never link against them
+	private static CryptEngine loadEngine(String className, ENGINE_TYPE fallbackType) {
+		try {
+			return (CryptEngine) Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch (Exception | LinkageError e) {
+			return getEngine(fallbackType);
+		}
+	}
+
+	/**
+	 * @return the engine of DEFAULT_ENGINE_TYPE.
+	 */
+	public static CryptEngine getDefault() {
+		return getEngine(DEFAULT_ENGINE_TYPE);
+	}
+}
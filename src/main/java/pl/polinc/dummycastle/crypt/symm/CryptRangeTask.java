@@ -0,0 +1,46 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Crypts a range of an array by splitting it in halves down to a leaf size and
+ * crypting every part with the key starting at its own offset.
+ */
+class CryptRangeTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	private final byte[] src;
+	private final int srcOff;
+	private final byte[] dst;
+	private final int dstOff;
+	private final int len;
+	private final CryptSymmKey key;
+	private final long keyPos;
+	private final CryptEngine engine;
+	private final int leafSize;
+
+	CryptRangeTask(byte[] src, int srcOff, byte[] dst, int dstOff, int len, CryptSymmKey key, long keyPos,
+			CryptEngine engine, int leafSize) {
+		this.src = src;
+		this.srcOff = srcOff;
+		this.dst = dst;
+		this.dstOff = dstOff;
+		this.len = len;
+		this.key = key;
+		this.keyPos = keyPos;
+		this.engine = engine;
+		this.leafSize = leafSize;
+	}
+
+	@Override
+	protected void compute() {
+		if (len <= leafSize) {
+			engine.crypt(src, srcOff, dst, dstOff, len, key, keyPos);
+			return;
+		}
+		int half = len >>> 1;
+		invokeAll(new CryptRangeTask(src, srcOff, dst, dstOff, half, key, keyPos, engine, leafSize),
+				new CryptRangeTask(src, srcOff + half, dst, dstOff + half, len - half, key, keyPos + half, engine,
+						leafSize));
+	}
+}
@@ -1,7 +1,35 @@
 package pl.polinc.dummycastle.crypt.symm;
 
+import java.nio.ByteBuffer;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
 public class CryptSymm {
 
+	// Arrays of at least this size are split and crypted in parallel
+	private static volatile int parallelThreshold = 8 * 1024 * 1024;
+
+	/**
+	 * Sets the size from which arrays and heap buffers passed to encryptStream()
+	 * and decryptStream() are split into ranges and crypted in parallel on the
+	 * common ForkJoinPool. Smaller ones and direct buffers are crypted on the
+	 * calling thread. Use Integer.MAX_VALUE to turn the parallel path off.
+	 * 
+	 * @param threshold size in bytes. 8 MB by default.
+	 */
+	public static void setParallelThreshold(int threshold) {
+		if (threshold < 0)
+			throw new IllegalArgumentException("<0 argument");
+		parallelThreshold = threshold;
+	}
+
+	/**
+	 * @return size from which arrays are crypted in parallel.
+	 */
+	public static int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
 	// Encrypt
 	public static byte[] encryptStream(byte[] plainData, CryptSymmKey key) {
 		//
@@ -11,14 +39,34 @@ public class CryptSymm {
 		//
 		return encryptedData;
 	}
+
 	// Encrypt
+	public static byte[] encryptStream(byte[] plainData, CryptSymmKey key, ENGINE_TYPE engineType) {
+		//
+		CryptClient cryptClient = new CryptClient(key, CryptEngine.getEngine(engineType));
+		//
+		byte[] encryptedData = cryptClient.encrypt(plainData);
+		//
+		return encryptedData;
+	}
 
+	// Encrypt
 	public static byte[] encryptStreamFrom(byte[] plainData, CryptSymmKey key, int keyPos) { //
 		CryptClient cryptClient = new CryptClient(key); // byte[]
 		byte[] encryptedData = cryptClient.encryptFrom(plainData, keyPos);
 		return encryptedData;
 	}
 
+	// Encrypt from a position beyond 2GB
+	public static byte[] encryptStreamFrom(byte[] plainData, CryptSymmKey key, long keyPos) {
+		//
+		CryptClient cryptClient = new CryptClient(key);
+		//
+		byte[] encryptedData = cryptClient.encryptFrom(plainData, keyPos);
+		//
+		return encryptedData;
+	}
+
 	// Decrypt
 	public static byte[] decryptStream(byte[] encryptedData, CryptSymmKey key) {
 		//
@@ -29,6 +77,16 @@ public class CryptSymm {
 		return plainData;
 	}
 
+	// Decrypt
+	public static byte[] decryptStream(byte[] encryptedData, CryptSymmKey key, ENGINE_TYPE engineType) {
+		//
+		CryptClient cryptClient = new CryptClient(key, CryptEngine.getEngine(engineType));
+		//
+		byte[] plainData = cryptClient.decrypt(encryptedData);
+		//
+		return plainData;
+	}
+
 	// Decrypt
 	public static byte[] decryptStreamFrom(byte[] encryptedData, CryptSymmKey key, int keyPos) {
 		//
@@ -38,4 +96,36 @@ public class CryptSymm {
 		//
 		return plainData;
 	}
-}
\ No newline at end of file
+
+	// Decrypt from a position beyond 2GB
+	public static byte[] decryptStreamFrom(byte[] encryptedData, CryptSymmKey key, long keyPos) {
+		//
+		CryptClient cryptClient = new CryptClient(key);
+		//
+		byte[] plainData = cryptClient.decryptFrom(encryptedData, keyPos);
+		//
+		return plainData;
+	}
+
+	// Encrypt into a given array without allocating the result
+	public static void encryptStream(byte[] plainData, int plainOff, int len, byte[] encryptedData, int encryptedOff,
+			CryptSymmKey key, long keyPos) {
+		new CryptClient(key).crypt(plainData, plainOff, len, encryptedData, encryptedOff, keyPos);
+	}
+
+	// Encrypt into a given heap or direct buffer without allocating the result
+	public static void encryptStream(ByteBuffer plainData, ByteBuffer encryptedData, CryptSymmKey key, long keyPos) {
+		new CryptClient(key).crypt(plainData, encryptedData, keyPos);
+	}
+
+	// Decrypt into a given array without allocating the result
+	public static void decryptStream(byte[] encryptedData, int encryptedOff, int len, byte[] plainData, int plainOff,
+			CryptSymmKey key, long keyPos) {
+		new CryptClient(key).crypt(encryptedData, encryptedOff, len, plainData, plainOff, keyPos);
+	}
+
+	// Decrypt into a given heap or direct buffer without allocating the result
+	public static void decryptStream(ByteBuffer encryptedData, ByteBuffer plainData, CryptSymmKey key, long keyPos) {
+		new CryptClient(key).crypt(encryptedData, plainData, keyPos);
+	}
+}
@@ -0,0 +1,136 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
+/**
+ * Wraps a channel with encrypted data, e.g. a FileChannel, and decrypts what is
+ * read from it and encrypts what is written to it using symmetric encryption.
+ * As every byte is crypted with the key at its own position, reading or writing
+ * may start at any position of the channel without touching the preceding
+ * bytes.
+ */
+public class CryptSymmChannel implements SeekableByteChannel {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final SeekableByteChannel channel;
+	private final CryptSymmKey key;
+	private final CryptEngine engine;
+	private final long keyPos;
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a channel whose first byte was encrypted with the first position of
+	 * the key.
+	 * 
+	 * @param channel channel with the encrypted data.
+	 * @param key     key used to crypt.
+	 */
+	public CryptSymmChannel(SeekableByteChannel channel, CryptSymmKey key) {
+		this(channel, key, 0, CryptEngine.DEFAULT_ENGINE_TYPE);
+	}
+
+	/**
+	 * Creates a channel whose first byte was encrypted with a specific position of
+	 * the key.
+	 * 
+	 * @param channel    channel with the encrypted data.
+	 * @param key        key used to crypt.
+	 * @param keyPos     position of the key used to crypt the first byte of the
+	 *                   channel.
+	 * @param engineType one of CryptEngine.ENGINE_TYPE types.
+	 */
+	public CryptSymmChannel(SeekableByteChannel channel, CryptSymmKey key, long keyPos, ENGINE_TYPE engineType) {
+		if (keyPos < 0)
+			throw new IllegalArgumentException("<0 argument");
+		this.channel = channel;
+		this.key = key;
+		this.keyPos = keyPos;
+		this.engine = CryptEngine.getEngine(engineType);
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		long pos = channel.position();
+		int start = dst.position();
+		int n = channel.read(dst);
+		if (n > 0) {
+			ByteBuffer data = dst.duplicate();
+			data.position(start).limit(start + n);
+			engine.crypt(data, data, key, keyPos + pos);
+		}
+		return n;
+	}
+
+	/**
+	 * Encrypts and writes bytes at the position of the channel. A FileChannel
+	 * opened for APPEND reports the end of the file as its position, so appended
+	 * bytes are crypted with the key at their place too. A non-blocking channel
+	 * may take only a part of the bytes - the others are left in the buffer, as by
+	 * the channel itself.
+	 * 
+	 * @throws IOException if the channel writes the bytes anywhere else than at
+	 *                     the position it reports, as they would not decrypt.
+	 */
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		if (buffer == null)
+			buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		int written = 0;
+		while (src.hasRemaining()) {
+			long pos = channel.position();
+			ByteBuffer chunk = src.duplicate();
+			chunk.limit(chunk.position() + Math.min(chunk.remaining(), buffer.capacity()));
+			buffer.clear();
+			engine.crypt(chunk, buffer, key, keyPos + pos);
+			buffer.flip();
+			// A channel taking no bytes is full, so it is not asked again
+			while (buffer.hasRemaining() && channel.write(buffer) > 0)
+				;
+			int n = buffer.position();
+			if (channel.position() != pos + n)
+				throw new IOException("Channel did not write at its position");
+			written += n;
+			src.position(src.position() + n);
+			if (buffer.hasRemaining())
+				break;
+		}
+		return written;
+	}
+
+	@Override
+	public long position() throws IOException {
+		return channel.position();
+	}
+
+	@Override
+	public CryptSymmChannel position(long newPosition) throws IOException {
+		channel.position(newPosition);
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public CryptSymmChannel truncate(long size) throws IOException {
+		channel.truncate(size);
+		return this;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
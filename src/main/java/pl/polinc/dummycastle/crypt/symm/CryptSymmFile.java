@@ -0,0 +1,226 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Encrypts and decrypts whole files using symmetric encryption. Both files are
+ * memory-mapped and split into chunks that are crypted in parallel on a
+ * ForkJoinPool, each chunk with the key starting at its own offset. The result
+ * is the same as from CryptSymm.encryptStream() called on the whole file.
+ */
+public class CryptSymmFile {
+
+	/**
+	 * Default size of a chunk crypted by one task.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * Summary of a file operation.
+	 */
+	public static class Report {
+		private final long bytes;
+		private final int chunks;
+		private final long nanos;
+
+		Report(long bytes, int chunks, long nanos) {
+			this.bytes = bytes;
+			this.chunks = chunks;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return number of bytes crypted.
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return number of chunks the file was split into.
+		 */
+		public int getChunks() {
+			return chunks;
+		}
+
+		/**
+		 * @return wall time of the operation in nanoseconds.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return throughput of the operation in megabytes (10^6 bytes) per second.
+		 */
+		public double getThroughput() {
+			return nanos == 0 ? 0 : bytes * 1000.0 / nanos;
+		}
+
+		public String toString() {
+			return bytes + " bytes in " + chunks + " chunks, " + (nanos / 1000000) + " ms, "
+					+ String.format("%.1f", getThroughput()) + " MB/s";
+		}
+	}
+
+	/**
+	 * Encrypts a file into another file using the common ForkJoinPool.
+	 * 
+	 * @param source      file to encrypt.
+	 * @param destination file for the encrypted data. Created or overwritten.
+	 * @param key         key used to encrypt.
+	 * @return summary of the operation.
+	 * @throws IOException if any of the files cannot be read or written.
+	 */
+	public static Report encryptFile(Path source, Path destination, CryptSymmKey key) throws IOException {
+		return cryptFile(source, destination, key, null, 0, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Decrypts a file into another file using the common ForkJoinPool.
+	 * 
+	 * @param source      file to decrypt.
+	 * @param destination file for the decrypted data. Created or overwritten.
+	 * @param key         key used to decrypt.
+	 * @return summary of the operation.
+	 * @throws IOException if any of the files cannot be read or written.
+	 */
+	public static Report decryptFile(Path source, Path destination, CryptSymmKey key) throws IOException {
+		return cryptFile(source, destination, key, null, 0, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Decrypts a file with one key and encrypts it with another in a single pass
+	 * using the common ForkJoinPool. The plain data never leaves the mapped
+	 * destination.
+	 * 
+	 * @param source      file to re-encrypt.
+	 * @param destination file for the re-encrypted data. Created or overwritten.
+	 *                    May be the same as source.
+	 * @param oldKey      key the source is encrypted with.
+	 * @param newKey      key to encrypt the destination with.
+	 * @return summary of the operation.
+	 * @throws IOException if any of the files cannot be read or written.
+	 */
+	public static Report reencryptFile(Path source, Path destination, CryptSymmKey oldKey, CryptSymmKey newKey)
+			throws IOException {
+		return cryptFile(source, destination, oldKey, newKey, 0, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Crypts a file into another file. Encryption and decryption are the same
+	 * operation.
+	 * 
+	 * @param source      file to crypt.
+	 * @param destination file for the result. Created or overwritten. May be the
+	 *                    same as source.
+	 * @param key         key used to crypt.
+	 * @param nextKey     optional key to crypt the result once more with, e.g. to
+	 *                    re-encrypt. May be null.
+	 * @param keyPos      position of the keys used to crypt the first byte.
+	 * @param chunkSize   size of a chunk crypted by one task.
+	 * @param pool        pool to run the tasks on.
+	 * @return summary of the operation.
+	 * @throws IOException if any of the files cannot be read or written.
+	 */
+	public static Report cryptFile(Path source, Path destination, CryptSymmKey key, CryptSymmKey nextKey,
+			long keyPos, int chunkSize, ForkJoinPool pool) throws IOException {
+		if (keyPos < 0 || chunkSize <= 0)
+			throw new IllegalArgumentException("<0 argument");
+
+		long start = System.nanoTime();
+		boolean inPlace = Files.exists(destination) && Files.isSameFile(source, destination);
+		try (FileChannel src = FileChannel.open(source,
+				inPlace ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+						: new StandardOpenOption[] { StandardOpenOption.READ });
+				FileChannel dst = inPlace ? null
+						: FileChannel.open(destination, StandardOpenOption.READ, StandardOpenOption.WRITE,
+								StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = src.size();
+			if (size > 0 && dst != null)
+				// Sized up front so that tasks never grow the file concurrently
+				dst.write(ByteBuffer.allocate(1), size - 1);
+
+			int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+			CryptEngine engine = CryptEngine.getEngine(CryptEngine.DEFAULT_ENGINE_TYPE);
+			try {
+				pool.invoke(new ChunkTask(src, dst, size, chunkSize, 0, chunks, engine, key, nextKey, keyPos));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return new Report(size, chunks, System.nanoTime() - start);
+		}
+	}
+
+	// Splits the range of chunks in halves until a single chunk is left
+	private static class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel src;
+		private final FileChannel dst;
+		private final long size;
+		private final int chunkSize;
+		private final int from;
+		private final int to;
+		private final CryptEngine engine;
+		private final CryptSymmKey key;
+		private final CryptSymmKey nextKey;
+		private final long keyPos;
+
+		ChunkTask(FileChannel src, FileChannel dst, long size, int chunkSize, int from, int to, CryptEngine engine,
+				CryptSymmKey key, CryptSymmKey nextKey, long keyPos) {
+			this.src = src;
+			this.dst = dst;
+			this.size = size;
+			this.chunkSize = chunkSize;
+			this.from = from;
+			this.to = to;
+			this.engine = engine;
+			this.key = key;
+			this.nextKey = nextKey;
+			this.keyPos = keyPos;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(src, dst, size, chunkSize, from, middle, engine, key, nextKey, keyPos),
+						new ChunkTask(src, dst, size, chunkSize, middle, to, engine, key, nextKey, keyPos));
+				return;
+			}
+			if (to == from)
+				return;
+
+			long offset = (long) from * chunkSize;
+			int len = (int) Math.min(chunkSize, size - offset);
+			try {
+				MappedByteBuffer out;
+				MappedByteBuffer in;
+				if (dst == null) {
+					out = src.map(FileChannel.MapMode.READ_WRITE, offset, len);
+					in = out;
+				} else {
+					in = src.map(FileChannel.MapMode.READ_ONLY, offset, len);
+					out = dst.map(FileChannel.MapMode.READ_WRITE, offset, len);
+				}
+				engine.crypt(in, out, key, keyPos + offset);
+				if (nextKey != null) {
+					out.flip();
+					engine.crypt(out, out, nextKey, keyPos + offset);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
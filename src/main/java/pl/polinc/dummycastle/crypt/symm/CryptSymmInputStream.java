@@ -0,0 +1,114 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
+/**
+ * Decrypts (or encrypts - the operation is the same) everything read from the
+ * underlying stream using symmetric encryption. The position of the key is kept
+ * internally, so the data may be read in any chunks and the result is the same
+ * as from CryptSymm.decryptStream() called on the whole data. The data is
+ * decrypted in place in the caller's array, so no buffer is needed.
+ */
+public class CryptSymmInputStream extends FilterInputStream {
+
+	private final CryptSymmKey key;
+	private final CryptEngine engine;
+	private long keyPos;
+
+	/**
+	 * Creates a stream that decrypts data from the first position of the key.
+	 * 
+	 * @param in  stream to read the encrypted data from.
+	 * @param key key used to decrypt.
+	 */
+	public CryptSymmInputStream(InputStream in, CryptSymmKey key) {
+		this(in, key, 0);
+	}
+
+	/**
+	 * Creates a stream that decrypts data from a specific position of the key.
+	 * 
+	 * @param in     stream to read the encrypted data from.
+	 * @param key    key used to decrypt.
+	 * @param keyPos starting position of the key used to decrypt previous chunks
+	 *               of data.
+	 */
+	public CryptSymmInputStream(InputStream in, CryptSymmKey key, long keyPos) {
+		this(in, key, keyPos, CryptEngine.DEFAULT_ENGINE_TYPE);
+	}
+
+	/**
+	 * Creates a stream that decrypts data from a specific position of the key
+	 * using a specific engine.
+	 * 
+	 * @param in         stream to read the encrypted data from.
+	 * @param key        key used to decrypt.
+	 * @param keyPos     starting position of the key used to decrypt previous
+	 *                   chunks of data.
+	 * @param engineType one of CryptEngine.ENGINE_TYPE types.
+	 */
+	public CryptSymmInputStream(InputStream in, CryptSymmKey key, long keyPos, ENGINE_TYPE engineType) {
+		super(in);
+		if (keyPos < 0)
+			throw new IllegalArgumentException("<0 argument");
+		this.key = key;
+		this.keyPos = keyPos;
+		this.engine = CryptEngine.getEngine(engineType);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b < 0)
+			return b;
+		b = (b ^ key.getKeyAt(keyPos)) & 0xFF;
+		keyPos++;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = in.read(b, off, len);
+		if (n > 0) {
+			engine.crypt(b, off, b, off, n, key, keyPos);
+			keyPos += n;
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = in.skip(n);
+		if (skipped > 0)
+			keyPos += skipped;
+		return skipped;
+	}
+
+	// The position of the key cannot follow the underlying stream back
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	/**
+	 * @return position of the key that the next byte will be decrypted with. It
+	 *         equals the number of bytes read or skipped plus the starting
+	 *         position.
+	 */
+	public long getKeyPos() {
+		return keyPos;
+	}
+}
@@ -14,6 +14,15 @@ public class CryptSymmKey {
 	private byte[] keyBytes;
 	private int keySize = 0;
 	private byte seed;
+	// Keystream schedule - whole periods of the key, built on first use
+	private volatile byte[] keyStream;
+	// The schedule is repeated up to at least this size to keep table walks long
+	// once data longer than one period is crypted
+	private static final int KEY_STREAM_MIN_SIZE = 4096;
+	// Keys with longer periods have no schedule
+	static final int KEY_STREAM_MAX_SIZE = 1 << 18;
+	// Keys created from key data
+	private static final CryptSymmKeyCache cache = new CryptSymmKeyCache();
 
 	/**
 	 * Creates a key for symmetric encryption based on provided data.
@@ -53,6 +62,40 @@ public class CryptSymmKey {
 		this(RandomClient.generateRandomString(32, RandomClient.Mode.ALPHANUMERIC, true), KEY_TYPE.TYPE_SEED);
 	}
 
+	/**
+	 * Creates a key for symmetric encryption based on provided data or takes it
+	 * from the cache if the same data and type were used recently. Keys are
+	 * immutable, so the result may be shared freely.
+	 * 
+	 * @param keyStr key data that will be used to generated the key.
+	 * @param type   of the key. KEY_TYPE.TYPE_SEED is the default type.
+	 * @return the key
+	 */
+	public static CryptSymmKey createFromString(String keyStr, KEY_TYPE type) {
+		return cache.get(keyStr, type);
+	}
+
+	/**
+	 * Creates a key of TYPE_SEED type for symmetric encryption based on provided
+	 * data or takes it from the cache if the same data was used recently.
+	 * 
+	 * @param keyStr key data that will be used to generated the key.
+	 * @return the key
+	 */
+	public static CryptSymmKey createFromString(String keyStr) {
+		return cache.get(keyStr, KEY_TYPE.TYPE_SEED);
+	}
+
+	/**
+	 * Retrieves the cache used by createFromString(). May be used to change its
+	 * limits or to read its statistics.
+	 * 
+	 * @return the cache.
+	 */
+	public static CryptSymmKeyCache getCache() {
+		return cache;
+	}
+
 	/**
 	 * Retrieves one character of the key.
 	 * 
@@ -61,12 +104,76 @@ public class CryptSymmKey {
 	 * @return a character of the key.
 	 */
 	public char getKeyAt(int pos) {
-		if (type == KEY_TYPE.TYPE_ROT)
-			return keyStr.charAt((pos) % keySize);
-		else if (type == KEY_TYPE.TYPE_SEED) {
-			return (char) (keyStr.charAt((pos) % keySize) ^ (seed + pos));
-		} else
-			return keyStr.charAt((pos) % keySize);
+		return getKeyAt((long) pos);
+	}
+
+	/**
+	 * Retrieves one character of the key at a position beyond the int range.
+	 * 
+	 * @param pos character to retrieve at a specific position. May be any positive
+	 *            number as the key is endless and generated on the fly.
+	 * @return a character of the key.
+	 */
+	public char getKeyAt(long pos) {
+		char keyChar = keyStr.charAt((int) (pos % keySize));
+		if (type == KEY_TYPE.TYPE_SEED)
+			return (char) (keyChar ^ (seed + pos));
+		else
+			return keyChar;
+	}
+
+	/**
+	 * Retrieves the keystream schedule of the key. The key is periodic - with
+	 * period of keySize for TYPE_ROT and lcm(keySize, 256) for TYPE_SEED - so the
+	 * schedule holds whole periods of it and byte at (pos % length) equals the low
+	 * byte of getKeyAt(pos). It is built once and shared, so it must not be
+	 * modified.
+	 * 
+	 * @return the keystream schedule or null if the period of the key is longer
+	 *         than 256 KB. getKeyAt() must be used for such keys.
+	 */
+	public byte[] getKeyStream() {
+		return getKeyStream(Long.MAX_VALUE);
+	}
+
+	// Schedule for crypting len bytes. Keys crypting no more than one period at a
+	// time - e.g. session keys of single asymmetric messages - never pay for the
+	// padding
+	byte[] getKeyStream(long len) {
+		byte[] stream = keyStream;
+		if (stream != null && (stream.length >= KEY_STREAM_MIN_SIZE || len <= stream.length))
+			return stream;
+		if (keySize == 0)
+			throw new ArithmeticException("Empty key");
+
+		int period = keySize;
+		if (type == KEY_TYPE.TYPE_SEED)
+			period = (int) Math.min((long) keySize / gcd(keySize, 256) * 256, Integer.MAX_VALUE);
+		if (period > KEY_STREAM_MAX_SIZE)
+			return null;
+		int periods = len > period ? (KEY_STREAM_MIN_SIZE + period - 1) / period : 1;
+		stream = buildKeyStream(period, periods);
+		keyStream = stream;
+		return stream;
+	}
+
+	private byte[] buildKeyStream(int period, int periods) {
+		byte[] stream = new byte[period * periods];
+		for (int i = 0; i < period; i++)
+			stream[i] = (byte) getKeyAt(i);
+		for (int i = 1; i < periods; i++)
+			System.arraycopy(stream, 0, stream, i * period, period);
+
+		return stream;
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int c = a % b;
+			a = b;
+			b = c;
+		}
+		return a;
 	}
 
 	/**
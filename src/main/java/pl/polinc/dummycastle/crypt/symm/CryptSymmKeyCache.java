@@ -0,0 +1,135 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import pl.polinc.dummycastle.crypt.CryptCache;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey.KEY_TYPE;
+
+/**
+ * Bounded cache of symmetric keys derived from key data. Keys are evicted when
+ * the cache is full - the least recently used first - and when they get older
+ * than the time to live. The cache is thread safe. Keys are immutable, so one
+ * instance, together with its keystream schedule, may be shared by any number
+ * of users.
+ */
+public class CryptSymmKeyCache {
+
+	/**
+	 * Default maximal number of keys.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 256;
+	/**
+	 * Default time to live of a key in milliseconds.
+	 */
+	public static final long DEFAULT_TTL = 10 * 60 * 1000;
+
+	private final CryptCache<KeyId, CryptSymmKey> keys;
+
+	/**
+	 * Creates a cache with default limits.
+	 */
+	public CryptSymmKeyCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+	}
+
+	/**
+	 * Creates a cache with specific limits.
+	 * 
+	 * @param maxSize maximal number of keys. 0 turns caching off.
+	 * @param ttl     time to live of a key in milliseconds.
+	 */
+	public CryptSymmKeyCache(int maxSize, long ttl) {
+		keys = new CryptCache<KeyId, CryptSymmKey>(maxSize, ttl);
+	}
+
+	/**
+	 * Changes limits of the cache. Keys over the new limits are evicted.
+	 * 
+	 * @param maxSize maximal number of keys. 0 turns caching off.
+	 * @param ttl     time to live of a key in milliseconds.
+	 */
+	public void configure(int maxSize, long ttl) {
+		keys.configure(maxSize, ttl);
+	}
+
+	/**
+	 * Retrieves a key for the key data and type, creating it if it is not cached.
+	 * 
+	 * @param keyStr key data.
+	 * @param type   type of the key.
+	 * @return the key.
+	 */
+	public CryptSymmKey get(String keyStr, KEY_TYPE type) {
+		KeyId id = new KeyId(keyStr, type);
+		CryptSymmKey key = keys.get(id);
+		if (key != null)
+			return key;
+
+		// Created outside of the lock - a concurrent miss at worst creates the
+		// key twice
+		key = new CryptSymmKey(keyStr, type);
+		keys.put(id, key);
+		return key;
+	}
+
+	/**
+	 * Removes all keys. Statistics are not reset.
+	 */
+	public void clear() {
+		keys.clear();
+	}
+
+	/**
+	 * @return number of keys cached at the moment, including expired ones not
+	 *         evicted yet.
+	 */
+	public int getSize() {
+		return keys.getSize();
+	}
+
+	/**
+	 * @return number of lookups that found a key.
+	 */
+	public long getHits() {
+		return keys.getHits();
+	}
+
+	/**
+	 * @return number of lookups that had to create a key.
+	 */
+	public long getMisses() {
+		return keys.getMisses();
+	}
+
+	/**
+	 * @return number of keys removed because of the size or time limit.
+	 */
+	public long getEvictions() {
+		return keys.getEvictions();
+	}
+
+	public String toString() {
+		return keys.toString();
+	}
+
+	private static class KeyId {
+		final String keyStr;
+		final KEY_TYPE type;
+
+		KeyId(String keyStr, KEY_TYPE type) {
+			this.keyStr = keyStr;
+			this.type = type;
+		}
+
+		@Override
+		public int hashCode() {
+			return keyStr.hashCode() * 31 + type.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof KeyId))
+				return false;
+			KeyId other = (KeyId) obj;
+			return type == other.type && keyStr.equals(other.keyStr);
+		}
+	}
+}
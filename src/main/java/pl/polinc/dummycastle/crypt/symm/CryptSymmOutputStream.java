@@ -0,0 +1,93 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
+/**
+ * Encrypts (or decrypts - the operation is the same) everything written to it
+ * using symmetric encryption and passes it to the underlying stream. The
+ * position of the key is kept internally, so the data may be written in any
+ * chunks and the result is the same as from CryptSymm.encryptStream() called
+ * on the whole data.
+ */
+public class CryptSymmOutputStream extends FilterOutputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final CryptSymmKey key;
+	private final CryptEngine engine;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private long keyPos;
+
+	/**
+	 * Creates a stream that encrypts data from the first position of the key.
+	 * 
+	 * @param out stream to write the encrypted data to.
+	 * @param key key used to encrypt.
+	 */
+	public CryptSymmOutputStream(OutputStream out, CryptSymmKey key) {
+		this(out, key, 0);
+	}
+
+	/**
+	 * Creates a stream that encrypts data from a specific position of the key.
+	 * 
+	 * @param out    stream to write the encrypted data to.
+	 * @param key    key used to encrypt.
+	 * @param keyPos starting position of the key used to encrypt previous chunks
+	 *               of data.
+	 */
+	public CryptSymmOutputStream(OutputStream out, CryptSymmKey key, long keyPos) {
+		this(out, key, keyPos, CryptEngine.DEFAULT_ENGINE_TYPE);
+	}
+
+	/**
+	 * Creates a stream that encrypts data from a specific position of the key
+	 * using a specific engine.
+	 * 
+	 * @param out        stream to write the encrypted data to.
+	 * @param key        key used to encrypt.
+	 * @param keyPos     starting position of the key used to encrypt previous
+	 *                   chunks of data.
+	 * @param engineType one of CryptEngine.ENGINE_TYPE types.
+	 */
+	public CryptSymmOutputStream(OutputStream out, CryptSymmKey key, long keyPos, ENGINE_TYPE engineType) {
+		super(out);
+		if (keyPos < 0)
+			throw new IllegalArgumentException("<0 argument");
+		this.key = key;
+		this.keyPos = keyPos;
+		this.engine = CryptEngine.getEngine(engineType);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b ^ key.getKeyAt(keyPos));
+		keyPos++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off)
+			throw new IndexOutOfBoundsException("Range out of bounds");
+		while (len > 0) {
+			int chunk = Math.min(len, buffer.length);
+			engine.crypt(b, off, buffer, 0, chunk, key, keyPos);
+			out.write(buffer, 0, chunk);
+			keyPos += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	/**
+	 * @return position of the key that the next byte will be encrypted with. It
+	 *         equals the number of bytes written plus the starting position.
+	 */
+	public long getKeyPos() {
+		return keyPos;
+	}
+}
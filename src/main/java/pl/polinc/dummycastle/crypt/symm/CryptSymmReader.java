@@ -0,0 +1,156 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Decrypts HEX encoded text read from the underlying reader using symmetric
+ * encryption. It is a counterpart of CryptSymmWriter and reads the output of
+ * DummyCastle.encryptSymmWith(text).getResult() as well. Whitespace between HEX
+ * digits is ignored.
+ */
+public class CryptSymmReader extends FilterReader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final CryptSymmInputStream cryptStream;
+	private final Reader decoder;
+
+	/**
+	 * Creates a reader that decrypts text from the first position of the key.
+	 * 
+	 * @param in  reader to read HEX encoded encrypted data from.
+	 * @param key key used to decrypt.
+	 */
+	public CryptSymmReader(Reader in, CryptSymmKey key) {
+		this(in, key, 0, Charset.defaultCharset());
+	}
+
+	/**
+	 * Creates a reader that decrypts text from a specific position of the key.
+	 * 
+	 * @param in      reader to read HEX encoded encrypted data from.
+	 * @param key     key used to decrypt.
+	 * @param keyPos  starting position of the key used to decrypt previous chunks
+	 *                of data.
+	 * @param charset charset used to turn decrypted bytes into text.
+	 */
+	public CryptSymmReader(Reader in, CryptSymmKey key, long keyPos, Charset charset) {
+		super(in);
+		cryptStream = new CryptSymmInputStream(new HexInputStream(in), key, keyPos);
+		decoder = new InputStreamReader(cryptStream, charset);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return decoder.read();
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		return decoder.read(cbuf, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		return decoder.skip(n);
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		return decoder.ready();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(int readAheadLimit) throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	@Override
+	public void close() throws IOException {
+		decoder.close();
+	}
+
+	// Reads bytes from HEX characters
+	private static class HexInputStream extends InputStream {
+		private final Reader in;
+		private final char[] buffer = new char[BUFFER_SIZE];
+		private final byte[] single = new byte[1];
+		// High half of a byte waiting for its low half, -1 if none
+		private int pending = -1;
+
+		HexInputStream(Reader in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int n;
+			while ((n = read(single, 0, 1)) == 0)
+				;
+			return n < 0 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			int n = 0;
+			while (n == 0) {
+				// Never read more digits than fit into len bytes. len is capped
+				// first, so that doubling it cannot overflow
+				int toRead = 2 * Math.min(len, buffer.length / 2) - (pending < 0 ? 0 : 1);
+				int chars = in.read(buffer, 0, toRead);
+				if (chars < 0) {
+					if (pending >= 0)
+						throw new IOException("Odd number of HEX digits");
+					return -1;
+				}
+				for (int i = 0; i < chars; i++) {
+					char c = buffer[i];
+					if (c == '\n' || c == '\r' || c == '\t' || c == ' ')
+						continue;
+					int digit = digit(c);
+					if (digit < 0)
+						throw new IOException("Invalid HEX character: " + c);
+					if (pending < 0)
+						pending = digit;
+					else {
+						b[off + n++] = (byte) ((pending << 4) | digit);
+						pending = -1;
+					}
+				}
+			}
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private static int digit(char c) {
+			if (c >= '0' && c <= '9')
+				return c - '0';
+			if (c >= 'a' && c <= 'f')
+				return c - 'a' + 10;
+			if (c >= 'A' && c <= 'F')
+				return c - 'A' + 10;
+			return -1;
+		}
+	}
+}
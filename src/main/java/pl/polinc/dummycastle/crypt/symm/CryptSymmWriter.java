@@ -0,0 +1,125 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Encrypts text written to it using symmetric encryption and passes it HEX
+ * encoded to the underlying writer. The text is turned into bytes using a
+ * charset - the platform default one if not specified - so the result is the
+ * same as from DummyCastle.encryptSymmWith(text).getResult() called on the
+ * whole text. Use CryptSymmReader to decrypt.
+ */
+public class CryptSymmWriter extends FilterWriter {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final CryptSymmOutputStream cryptStream;
+	private final Writer encoder;
+
+	/**
+	 * Creates a writer that encrypts text from the first position of the key.
+	 * 
+	 * @param out writer to write HEX encoded encrypted data to.
+	 * @param key key used to encrypt.
+	 */
+	public CryptSymmWriter(Writer out, CryptSymmKey key) {
+		this(out, key, 0, Charset.defaultCharset());
+	}
+
+	/**
+	 * Creates a writer that encrypts text from a specific position of the key.
+	 * 
+	 * @param out     writer to write HEX encoded encrypted data to.
+	 * @param key     key used to encrypt.
+	 * @param keyPos  starting position of the key used to encrypt previous chunks
+	 *                of data.
+	 * @param charset charset used to turn the text into bytes.
+	 */
+	public CryptSymmWriter(Writer out, CryptSymmKey key, long keyPos, Charset charset) {
+		super(out);
+		cryptStream = new CryptSymmOutputStream(new HexOutputStream(out), key, keyPos);
+		encoder = new OutputStreamWriter(cryptStream, charset);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		encoder.write(c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		encoder.write(cbuf, off, len);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		encoder.write(str, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		encoder.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		encoder.close();
+	}
+
+	/**
+	 * @return position of the key that the next byte will be encrypted with.
+	 *         Characters still buffered by the charset encoder are not counted
+	 *         until flush().
+	 */
+	public long getKeyPos() {
+		return cryptStream.getKeyPos();
+	}
+
+	// Writes bytes as HEX characters
+	private static class HexOutputStream extends OutputStream {
+		private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+		private final Writer out;
+		private final char[] buffer = new char[BUFFER_SIZE];
+
+		HexOutputStream(Writer out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(HEX_DIGITS[(b >>> 4) & 0xF]);
+			out.write(HEX_DIGITS[b & 0xF]);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int chunk = Math.min(len, buffer.length / 2);
+				for (int i = 0; i < chunk; i++) {
+					int v = b[off + i] & 0xFF;
+					buffer[2 * i] = HEX_DIGITS[v >>> 4];
+					buffer[2 * i + 1] = HEX_DIGITS[v & 0xF];
+				}
+				out.write(buffer, 0, 2 * chunk);
+				off += chunk;
+				len -= chunk;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Crypts a full vector lane width at a time using the JDK Vector API. The
+ * remainder of every run is crypted byte by byte. The jdk.incubator.vector
+ * module is reached only through method handles, so the engine compiles
+ * without it, but needs it to run - CryptEngine.getEngine() falls back to a
+ * scalar engine when the module is missing. Buffers without arrays are crypted
+ * by the word engine.
+ */
+public class CryptVectorEngine extends CryptWordEngine {
+
+	// Number of bytes in a vector of the preferred species
+	private static final int LANES;
+	// (src, srcOff, keyStream, keyOff, dst, dstOff) - XORs one vector of src with
+	// one of the keystream into dst
+	private static final MethodHandle XOR_LANES;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> vectorClass = Class.forName("jdk.incubator.vector.ByteVector");
+			Class<?> speciesClass = Class.forName("jdk.incubator.vector.VectorSpecies");
+			Class<?> binaryClass = Class.forName("jdk.incubator.vector.VectorOperators$Binary");
+			Object species = vectorClass.getField("SPECIES_PREFERRED").get(null);
+			Object xor = Class.forName("jdk.incubator.vector.VectorOperators").getField("XOR").get(null);
+			LANES = (Integer) speciesClass.getMethod("length").invoke(species);
+
+			MethodHandle fromArray = lookup.findStatic(vectorClass, "fromArray",
+					MethodType.methodType(vectorClass, speciesClass, byte[].class, int.class));
+			fromArray = MethodHandles.insertArguments(fromArray, 0, species);
+			MethodHandle lanewise = lookup.findVirtual(vectorClass, "lanewise", MethodType.methodType(vectorClass,
+					binaryClass, Class.forName("jdk.incubator.vector.Vector")));
+			lanewise = MethodHandles.insertArguments(lanewise, 1, xor);
+			lanewise = lanewise.asType(MethodType.methodType(vectorClass, vectorClass, vectorClass));
+			MethodHandle intoArray = lookup.findVirtual(vectorClass, "intoArray",
+					MethodType.methodType(void.class, byte[].class, int.class));
+			MethodHandle xorArrays = MethodHandles.collectArguments(lanewise, 1, fromArray);
+			xorArrays = MethodHandles.collectArguments(xorArrays, 0, fromArray);
+			XOR_LANES = MethodHandles.collectArguments(intoArray, 0, xorArrays);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	@Override
+	public void crypt(byte[] src, int srcOff, byte[] dst, int dstOff, int len, CryptSymmKey key, long keyPos) {
+		if (len <= 0)
+			return;
+		byte[] keyStream = key.getKeyStream(len);
+		if (keyStream == null) {
+			cryptByKeyAt(src, srcOff, dst, dstOff, len, key, keyPos);
+			return;
+		}
+		int period = keyStream.length;
+		int k = (int) (keyPos % period);
+		int t = 0;
+		while (t < len) {
+			int run = Math.min(len - t, period - k);
+			int s = srcOff + t;
+			int d = dstOff + t;
+			int i = 0;
+			// The lane count is a power of two
+			int bound = run & -LANES;
+			try {
+				for (; i < bound; i += LANES)
+					XOR_LANES.invokeExact(src, s + i, keyStream, k + i, dst, d + i);
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+			for (; i < run; i++)
+				dst[d + i] = (byte) (src[s + i] ^ keyStream[k + i]);
+			t += run;
+			k = 0;
+		}
+	}
+}
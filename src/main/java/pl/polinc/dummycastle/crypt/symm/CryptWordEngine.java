@@ -0,0 +1,74 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Crypts 8 bytes at a time through long views over the data and the keystream
+ * schedule of the key. The remainder of every run is crypted byte by byte.
+ */
+public class CryptWordEngine extends CryptEngine {
+
+	// XOR does not care about byte order as long as all three views share it
+	private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.nativeOrder());
+	private static final VarHandle BUFFER_LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class,
+			ByteOrder.nativeOrder());
+
+	@Override
+	public void crypt(byte[] src, int srcOff, byte[] dst, int dstOff, int len, CryptSymmKey key, long keyPos) {
+		if (len <= 0)
+			return;
+		byte[] keyStream = key.getKeyStream(len);
+		if (keyStream == null) {
+			cryptByKeyAt(src, srcOff, dst, dstOff, len, key, keyPos);
+			return;
+		}
+		int period = keyStream.length;
+		int k = (int) (keyPos % period);
+		int t = 0;
+		while (t < len) {
+			int run = Math.min(len - t, period - k);
+			int s = srcOff + t;
+			int d = dstOff + t;
+			int i = 0;
+			for (; i <= run - 8; i += 8)
+				LONG_VIEW.set(dst, d + i,
+						(long) LONG_VIEW.get(src, s + i) ^ (long) LONG_VIEW.get(keyStream, k + i));
+			for (; i < run; i++)
+				dst[d + i] = (byte) (src[s + i] ^ keyStream[k + i]);
+			t += run;
+			k = 0;
+		}
+	}
+
+	@Override
+	protected void cryptBuffers(ByteBuffer src, int srcPos, ByteBuffer dst, int dstPos, int len, CryptSymmKey key,
+			long keyPos) {
+		if (len <= 0)
+			return;
+		byte[] keyStream = key.getKeyStream(len);
+		if (keyStream == null) {
+			super.cryptBuffers(src, srcPos, dst, dstPos, len, key, keyPos);
+			return;
+		}
+		int period = keyStream.length;
+		int k = (int) (keyPos % period);
+		int t = 0;
+		while (t < len) {
+			int run = Math.min(len - t, period - k);
+			int s = srcPos + t;
+			int d = dstPos + t;
+			int i = 0;
+			for (; i <= run - 8; i += 8)
+				BUFFER_LONG_VIEW.set(dst, d + i,
+						(long) BUFFER_LONG_VIEW.get(src, s + i) ^ (long) LONG_VIEW.get(keyStream, k + i));
+			for (; i < run; i++)
+				dst.put(d + i, (byte) (src.get(s + i) ^ keyStream[k + i]));
+			t += run;
+			k = 0;
+		}
+	}
+}
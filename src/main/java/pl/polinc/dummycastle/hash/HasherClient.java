@@ -1,5 +1,8 @@
 package pl.polinc.dummycastle.hash;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 public class HasherClient {
 	// Salt
 	String saltStr;
@@ -11,6 +14,40 @@ public class HasherClient {
 	byte[] keyBytes;
 	int keySize = 0;
 
+	/**
+	 * Digests data into any number of bytes. Unlike hash() the result is
+	 * collision resistant, so it may stand for the data in signatures. SHA-256
+	 * hashes of the data followed by a 4-byte counter are concatenated until
+	 * there are enough bytes.
+	 * 
+	 * @param data      data to digest.
+	 * @param outputLen length of the digest in bytes.
+	 * @return the digest.
+	 */
+	static public byte[] digest(byte[] data, int outputLen) {
+		MessageDigest sha;
+		try {
+			sha = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+		byte[] obuf = new byte[outputLen];
+		byte[] counter = new byte[4];
+		for (int off = 0, i = 0; off < outputLen; i++) {
+			counter[0] = (byte) (i >>> 24);
+			counter[1] = (byte) (i >>> 16);
+			counter[2] = (byte) (i >>> 8);
+			counter[3] = (byte) i;
+			sha.update(data);
+			byte[] block = sha.digest(counter);
+			int len = Math.min(block.length, outputLen - off);
+			System.arraycopy(block, 0, obuf, off, len);
+			off += len;
+		}
+		return obuf;
+	}
+
 	static public byte[] hash(byte[] textInput, int outputLen) {
 		int iLen = textInput.length;
 		byte[] ibuf = textInput;
@@ -0,0 +1,73 @@
+package pl.polinc.dummycastle.crypt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class CryptCacheTest {
+
+	@Test
+	void leastRecentlyUsedEvicted() {
+		CryptCache<String, Integer> cache = new CryptCache<String, Integer>(2, Long.MAX_VALUE);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		assertEquals(1, (int) cache.get("a"));
+		cache.put("c", 3);
+		assertNull(cache.get("b"));
+		assertEquals(1, (int) cache.get("a"));
+		assertEquals(3, (int) cache.get("c"));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.takeEvicted());
+		assertEquals(0, cache.takeEvicted());
+	}
+
+	@Test
+	void recentlyUsedExpiredEntryEvicted() throws InterruptedException {
+		CryptCache<String, Integer> cache = new CryptCache<String, Integer>(10, 50);
+		cache.put("old", 1);
+		Thread.sleep(30);
+		cache.put("young", 2);
+		// Used recently, so it is behind the young entry in the LRU order
+		assertEquals(1, (int) cache.get("old"));
+		Thread.sleep(30);
+		cache.put("other", 3);
+		assertEquals(2, cache.getSize());
+		assertNull(cache.get("old"));
+	}
+
+	@Test
+	void expiredEntryEvictedBeforeLiveOne() throws InterruptedException {
+		CryptCache<String, Integer> cache = new CryptCache<String, Integer>(2, 50);
+		cache.put("expiring", 1);
+		Thread.sleep(30);
+		cache.put("live", 2);
+		assertEquals(1, (int) cache.get("expiring"));
+		Thread.sleep(30);
+		cache.put("new", 3);
+		assertEquals(2, (int) cache.get("live"));
+		assertEquals(3, (int) cache.get("new"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void replacedEntryKeepsOneSlot() {
+		CryptCache<String, Integer> cache = new CryptCache<String, Integer>(2, Long.MAX_VALUE);
+		cache.put("a", 1);
+		cache.put("a", 2);
+		cache.put("b", 3);
+		assertEquals(2, cache.getSize());
+		assertEquals(2, (int) cache.get("a"));
+		assertEquals(0, cache.getEvictions());
+	}
+
+	@Test
+	void zeroSizeCachesNothing() {
+		CryptCache<String, Integer> cache = new CryptCache<String, Integer>(0, 1000);
+		cache.put("a", 1);
+		assertNull(cache.get("a"));
+		assertEquals(1, cache.getMisses());
+		assertThrows(IllegalArgumentException.class, () -> cache.configure(1, -1));
+	}
+}
@@ -0,0 +1,109 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.DummyCastle;
+
+class CryptAsymmBatchTest {
+
+	private static List<byte[]> messages(int count) {
+		List<byte[]> messages = new ArrayList<byte[]>();
+		for (int i = 0; i < count; i++)
+			messages.add(("Message " + i + " of the batch tests").getBytes());
+		return messages;
+	}
+
+	@Test
+	void batchRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		List<byte[]> plain = messages(20);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			CryptAsymmBatch encrypted = CryptAsymm.encryptBatch(plain, pair.getCryptAsymmPublicKey(), executor, 4);
+			assertFalse(encrypted.isError());
+			CryptAsymmBatch decrypted = CryptAsymm.decryptBatch(encrypted.getResults(),
+					pair.getCryptAsymmPrivateKey(), executor, 4);
+			assertEquals(plain.size(), decrypted.size());
+			for (int i = 0; i < plain.size(); i++)
+				assertArrayEquals(plain.get(i), decrypted.getResult(i));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void failedItemReported() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		List<byte[]> envelopes = CryptAsymm.encryptBatch(messages(5), pair.getCryptAsymmPublicKey()).getResults();
+		byte[] broken = envelopes.get(2).clone();
+		broken[0] = 9;
+		envelopes.set(2, broken);
+		CryptAsymmBatch decrypted = CryptAsymm.decryptBatch(envelopes, pair.getCryptAsymmPrivateKey());
+		assertTrue(decrypted.isError());
+		assertEquals(1, decrypted.getErrorCount());
+		assertTrue(decrypted.isError(2));
+		assertNull(decrypted.getResult(2));
+		assertTrue(decrypted.getException(2) instanceof IllegalArgumentException);
+		assertArrayEquals(messages(5).get(4), decrypted.getResult(4));
+	}
+
+	@Test
+	void batchFinishesWhenExecutorRejects() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmBatch encrypted = CryptAsymm.encryptBatch(messages(6), pair.getCryptAsymmPublicKey(), task -> {
+			throw new RejectedExecutionException();
+		}, 4);
+		assertEquals(0, encrypted.getErrorCount());
+		assertEquals(6, encrypted.size());
+	}
+
+	@Test
+	void dummyCastleBatchRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		List<String> texts = Arrays.asList("first text", "", "third text");
+		List<String> secrets = new ArrayList<String>();
+		for (DummyCastle result : new DummyCastle().encryptAsymmBatchWith(texts, pair.getCryptAsymmPublicKey()))
+			secrets.add(result.isError() ? null : result.getResult());
+		assertNull(secrets.get(1));
+
+		List<DummyCastle> decrypted = new DummyCastle().decryptAsymmBatchWith(secrets,
+				pair.getCryptAsymmPrivateKey());
+		assertEquals("first text", decrypted.get(0).getResultDecoded());
+		assertTrue(decrypted.get(1).isError());
+		assertEquals("third text", decrypted.get(2).getResultDecoded());
+	}
+
+	@Test
+	void errorOfTaskThrownToCaller() {
+		AssertionError error = new AssertionError("task failed");
+		AtomicInteger started = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AssertionError thrown = assertThrows(AssertionError.class, () -> CryptAsymmBatch.runAll(100, index -> {
+				started.incrementAndGet();
+				if (index == 3)
+					throw error;
+			}, executor, 3));
+			assertSame(error, thrown);
+			assertTrue(started.get() < 100);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptClient;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey;
+
+class CryptAsymmEnvelopeTest {
+
+	// Key and envelope made by the version storing the gem as decimal text
+	private static final String DECIMAL_KEY = "5762471457027013569118415133454016882770951110144864117670788958698442"
+			+ "0784072660718612656892010848394809733978771213772948549111109051990662"
+			+ "0237264577535=@=354536746700558486085085178133538006756582593049375568"
+			+ "3861811724148585985321931955627674227155915674369703715579981670879557"
+			+ "597444585629466441503078231849";
+	private static final String DECIMAL_ENVELOPE = "AAAAmTc3ODY0Nzc1NTg5MTk4NDkzNTE4NzQ1NDg1MDg0MDI5NDY4Njc2ODAyNTgwOTA2MD"
+			+ "Y1MjY0Nzc3NTc2NzUyMjk3OTc4OTI1MDY4OTk5NTA5MzY3NDgxMzExNjc5NDEwMzAwOTcw"
+			+ "MzcxMzU4NjI2Mjg0NzUyMDM2MzYyOTY1NTg4MDIxNjQ5NjgwNjkwNjExMzA2Njc5ODE4MX"
+			+ "RqdklESG8eSUBweHoyGDw/WHxYWTpOlqPU86qHrL8=";
+	private static final String DECIMAL_PLAIN = "message number 1 with some text";
+
+	private static final byte[] PLAIN = "Plain text of the envelope tests".getBytes();
+	private static final int[] PREFIXES = { 0, 1, 3, 20 };
+
+	@Test
+	void binaryEnvelopeRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		assertEquals(CryptAsymm.ENVELOPE_BINARY, envelope[0]);
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void binaryEnvelopeHasFixedWidthGem() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		int gemLen = (pair.getCryptAsymmPublicKey().getProduct().bitLength() + 7) / 8;
+		for (int i = 0; i < 8; i++) {
+			byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+			assertEquals(gemLen, CryptAsymm.getVarInt(envelope, 1));
+			assertEquals(1 + CryptAsymm.varIntSize(gemLen) + gemLen + PLAIN.length, envelope.length);
+		}
+	}
+
+	@Test
+	void shortDataRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] plain = { 42 };
+		byte[] envelope = CryptAsymm.encryptStream(plain, pair.getCryptAsymmPublicKey());
+		assertArrayEquals(plain, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void decimalEnvelopeOfOlderVersionsDecrypts() {
+		byte[] envelope = Base64.getDecoder().decode(DECIMAL_ENVELOPE);
+		assertEquals(CryptAsymm.ENVELOPE_DECIMAL, envelope[0]);
+		byte[] plain = CryptAsymm.decryptStream(envelope, CryptAsymmPrivateKey.createFromString(DECIMAL_KEY));
+		assertEquals(DECIMAL_PLAIN, new String(plain));
+	}
+
+	@Test
+	void unknownVersionRejected() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		envelope[0] = 9;
+		assertThrows(IllegalArgumentException.class,
+				() -> CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void truncatedEnvelopesRejected() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmPrivateKey key = pair.getCryptAsymmPrivateKey();
+		byte[][] envelopes = { CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey()),
+				Base64.getDecoder().decode(DECIMAL_ENVELOPE),
+				CryptAsymm.encryptStream(PLAIN, Arrays.asList(pair.getCryptAsymmPublicKey())),
+				new CryptAsymmSender(pair.getCryptAsymmPublicKey()).encrypt(PLAIN) };
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(key);
+		for (byte[] envelope : envelopes)
+			for (int len : PREFIXES) {
+				byte[] prefix = Arrays.copyOf(envelope, len);
+				assertThrows(IllegalArgumentException.class, () -> receiver.decrypt(prefix), len + " bytes");
+				if (envelope[0] != CryptAsymm.ENVELOPE_SESSION)
+					assertThrows(IllegalArgumentException.class, () -> CryptAsymm.decryptStream(prefix, key));
+			}
+	}
+
+	@Test
+	void malformedGemLengthRejected() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		// Too long, negative, not in the shortest form and longer than the envelope
+		byte[][] envelopes = { { 1, -1, -1, -1, -1, -1, 1 }, { 1, -1, -1, -1, -1, 15 }, { 1, -128, 0, 5 },
+				{ 1, -1, -1, -1, -1, 7, 0 }, { 3, 1, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, -1, -1, 7 } };
+		for (byte[] envelope : envelopes) {
+			assertThrows(IllegalArgumentException.class, () -> CryptAsymm.decryptStream(envelope, key));
+			assertThrows(IOException.class,
+					() -> new CryptAsymmInputStream(new ByteArrayInputStream(envelope), key).read());
+		}
+	}
+
+	@Test
+	void symmetricLayerMatchesCryptClient() {
+		CryptSymmKey key = new CryptSymmKey("gem of the envelope tests");
+		byte[] data = new byte[5000];
+		new Random(1).nextBytes(data);
+		byte[] expected = new CryptClient(key).crypt(data);
+		assertArrayEquals(expected, new CryptAsymmClient(key).crypt(data));
+
+		byte[] envelope = new byte[data.length + 11];
+		new CryptAsymmClient(key).crypt(data, 0, data.length, envelope, 11, 0);
+		assertArrayEquals(expected, Arrays.copyOfRange(envelope, 11, envelope.length));
+
+		new CryptAsymmClient(key).cryptInside(envelope);
+		new CryptAsymmClient(key).cryptInside(envelope);
+		assertArrayEquals(expected, Arrays.copyOfRange(envelope, 11, envelope.length));
+	}
+}
@@ -0,0 +1,86 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CryptAsymmGemCacheTest {
+
+	private static final byte[] PLAIN = "Plain text of the gem cache tests".getBytes();
+
+	@Test
+	void repeatedEnvelopeHitsCache() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmGemCache cache = new CryptAsymmGemCache();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		for (int i = 0; i < 3; i++)
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey(), cache));
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test
+	void otherKeyDoesNotHitCache() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmGemCache cache = new CryptAsymmGemCache();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey(), cache);
+		CryptAsymm.decryptStream(envelope, CryptAsymmTestKeys.otherPair().getCryptAsymmPrivateKey(), cache);
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	void defaultCacheUsedWhenSet() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmGemCache cache = new CryptAsymmGemCache();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		CryptAsymm.setGemCache(cache);
+		try {
+			CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey());
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+		} finally {
+			CryptAsymm.setGemCache(null);
+		}
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void listenerSeesHitsMissesAndEvictions() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmGemCache cache = new CryptAsymmGemCache(2, CryptAsymmGemCache.DEFAULT_TTL);
+		AtomicInteger hits = new AtomicInteger();
+		AtomicInteger misses = new AtomicInteger();
+		AtomicInteger evictions = new AtomicInteger();
+		cache.setListener(new CryptAsymmGemCache.Listener() {
+			@Override
+			public void onHit() {
+				hits.incrementAndGet();
+			}
+
+			@Override
+			public void onMiss(long nanos) {
+				misses.incrementAndGet();
+			}
+
+			@Override
+			public void onEviction(int count) {
+				evictions.addAndGet(count);
+			}
+		});
+		byte[] first = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		CryptAsymm.decryptStream(first, pair.getCryptAsymmPrivateKey(), cache);
+		CryptAsymm.decryptStream(first, pair.getCryptAsymmPrivateKey(), cache);
+		for (int i = 0; i < 2; i++)
+			CryptAsymm.decryptStream(CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey()),
+					pair.getCryptAsymmPrivateKey(), cache);
+		assertEquals(1, hits.get());
+		assertEquals(3, misses.get());
+		assertEquals(1, evictions.get());
+		assertEquals(2, cache.getSize());
+	}
+}
@@ -0,0 +1,128 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.DummyCastle;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys.EXPONENT_TYPE;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys.KEY_SIZE_TYPE;
+
+class CryptAsymmKeyPoolTest {
+
+	private static final KEY_SIZE_TYPE SIZE = KEY_SIZE_TYPE.KEY_SIZE_256;
+	private static final byte[] PLAIN = "Plain text of the key pool tests".getBytes();
+
+	private static void awaitAvailable(CryptAsymmKeyPool pool, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30000;
+		while (pool.getAvailable(SIZE) < count) {
+			assertTrue(System.currentTimeMillis() < deadline, "pool not filled");
+			Thread.sleep(5);
+		}
+	}
+
+	private static void assertValidPair(CryptAsymmKeysPair pair) {
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void pooledPairsHandedOutOnce() throws Exception {
+		try (CryptAsymmKeyPool pool = new CryptAsymmKeyPool(1, EXPONENT_TYPE.EXPONENT_65537)) {
+			pool.setTarget(SIZE, 2);
+			awaitAvailable(pool, 2);
+			CryptAsymmKeysPair first = pool.take(SIZE);
+			CryptAsymmKeysPair second = pool.take(SIZE);
+			assertNotEquals(first.getCryptAsymmPublicKey().getProduct(), second.getCryptAsymmPublicKey().getProduct());
+			assertValidPair(first);
+			assertValidPair(second);
+			assertEquals(0, pool.getMisses(SIZE));
+		}
+	}
+
+	@Test
+	void emptyPoolGeneratesOnCaller() throws Exception {
+		try (CryptAsymmKeyPool pool = new CryptAsymmKeyPool()) {
+			assertValidPair(pool.take(SIZE));
+			assertEquals(1, pool.getMisses(SIZE));
+			assertEquals(0, pool.getAvailable(SIZE));
+		}
+	}
+
+	@Test
+	void unusedPairsSavedAndLoaded() throws Exception {
+		Path file = Files.createTempFile("CryptAsymmKeyPoolTest", ".keys");
+		Files.delete(file);
+		try {
+			CryptAsymmKeyPool pool = new CryptAsymmKeyPool(1, EXPONENT_TYPE.EXPONENT_65537, file);
+			pool.setTarget(SIZE, 2);
+			awaitAvailable(pool, 2);
+			pool.setTarget(SIZE, 0);
+			pool.close();
+			assertEquals(2, Files.readAllLines(file).size());
+
+			try (CryptAsymmKeyPool loaded = new CryptAsymmKeyPool(1, EXPONENT_TYPE.EXPONENT_65537, file)) {
+				assertEquals(2, loaded.getAvailable(SIZE));
+				// Loaded pairs are removed from the file
+				assertFalse(Files.exists(file));
+				assertValidPair(loaded.take(SIZE));
+				assertValidPair(loaded.take(SIZE));
+				assertEquals(0, loaded.getMisses(SIZE));
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void negativeTargetRejected() throws IOException {
+		try (CryptAsymmKeyPool pool = new CryptAsymmKeyPool()) {
+			assertThrows(IllegalArgumentException.class, () -> pool.setTarget(SIZE, -1));
+		}
+	}
+
+	@Test
+	void takeAfterCloseRejected() throws IOException {
+		CryptAsymmKeyPool pool = new CryptAsymmKeyPool();
+		pool.close();
+		assertThrows(IllegalStateException.class, () -> pool.take(SIZE));
+		// A second close does nothing
+		pool.close();
+
+		DummyCastle dummyCastle = new DummyCastle();
+		assertNull(dummyCastle.genAsymmKeysWithPool(pool, SIZE));
+		assertTrue(dummyCastle.isError());
+		assertTrue(dummyCastle.getException() instanceof IllegalStateException);
+	}
+
+	@Test
+	void savedFileReadableByOwnerOnly() throws Exception {
+		Path file = Files.createTempFile("CryptAsymmKeyPoolTest", ".keys");
+		try {
+			Files.write(file, new byte[0]);
+			if (Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class))
+				Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-rw-"));
+			CryptAsymmKeyPool pool = new CryptAsymmKeyPool(1, EXPONENT_TYPE.EXPONENT_65537, file);
+			pool.setTarget(SIZE, 1);
+			awaitAvailable(pool, 1);
+			pool.close();
+			assertEquals(1, Files.readAllLines(file).size());
+			if (Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class))
+				assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.DummyCastle;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys.EXPONENT_TYPE;
+import pl.polinc.dummycastle.crypt.asymm.CryptAsymmKeys.KEY_SIZE_TYPE;
+
+class CryptAsymmKeysTest {
+
+	private static final byte[] PLAIN = "Plain text of the key generation tests".getBytes();
+
+	private static void assertValidPair(CryptAsymmKeysPair pair, int bits) {
+		CryptAsymmPublicKey publicKey = pair.getCryptAsymmPublicKey();
+		CryptAsymmPrivateKey privateKey = pair.getCryptAsymmPrivateKey();
+		assertEquals(publicKey.getProduct(), privateKey.getProduct());
+		int productBits = publicKey.getProduct().bitLength();
+		assertTrue(Math.abs(productBits - bits) <= 1, "bits " + productBits);
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, publicKey);
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, privateKey));
+	}
+
+	@Test
+	void fixedExponentKeysRoundTrip() {
+		CryptAsymmKeysPair pair = new CryptAsymmKeys(KEY_SIZE_TYPE.KEY_SIZE_512, EXPONENT_TYPE.EXPONENT_65537)
+				.generateKeys();
+		assertEquals(BigInteger.valueOf(65537), pair.getCryptAsymmPublicKey().getExponent());
+		assertValidPair(pair, 512);
+	}
+
+	@Test
+	void randomExponentKeysRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		assertTrue(pair.getCryptAsymmPublicKey().getExponent().compareTo(BigInteger.valueOf(65537)) != 0);
+		assertValidPair(pair, 512);
+	}
+
+	@Test
+	void asyncKeysHaveRequestedSize() throws Exception {
+		assertValidPair(new CryptAsymmKeys(KEY_SIZE_TYPE.KEY_SIZE_256).generateKeysAsync().get(), 256);
+		assertValidPair(new DummyCastle().genAsymmKeysAsyncWithKeySizeType(KEY_SIZE_TYPE.KEY_SIZE_1024).get(), 1024);
+	}
+
+	@Test
+	void cancelledGenerationStops() {
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		CompletableFuture<CryptAsymmKeysPair> future = new CryptAsymmKeys().generateKeysAsync(tasks::add);
+		future.cancel(true);
+		// The searches start after the cancellation and give up at once
+		for (Runnable task : tasks)
+			task.run();
+		assertThrows(CancellationException.class, () -> future.get());
+	}
+
+	@Test
+	void generationTimesOut() {
+		// An executor that never runs anything
+		CompletableFuture<CryptAsymmKeysPair> future = new CryptAsymmKeys().generateKeysAsync(task -> {
+		}, 10, TimeUnit.MILLISECONDS);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get());
+		assertTrue(e.getCause() instanceof TimeoutException);
+	}
+}
@@ -0,0 +1,66 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CryptAsymmMontgomeryTest {
+
+	private static final int[] SIZES = { 2, 63, 64, 65, 127, 128, 512, 1000, 1024 };
+	private static final byte[] PLAIN = "Plain text of the Montgomery tests".getBytes();
+
+	@Test
+	void modPowMatchesBigInteger() {
+		Random random = new Random(21);
+		for (int bits : SIZES)
+			for (int i = 0; i < 10; i++) {
+				BigInteger modulus = new BigInteger(bits, random).setBit(bits - 1).setBit(0);
+				BigInteger exponent = new BigInteger(bits, random);
+				CryptAsymmMontgomery montgomery = new CryptAsymmMontgomery(modulus, exponent);
+				for (int j = 0; j < 5; j++) {
+					BigInteger value = new BigInteger(bits, random).mod(modulus);
+					assertEquals(value.modPow(exponent, modulus), montgomery.modPow(value), bits + " bits");
+				}
+			}
+	}
+
+	@Test
+	void edgeValuesMatchBigInteger() {
+		BigInteger modulus = CryptAsymmTestKeys.pair().getCryptAsymmPublicKey().getProduct();
+		BigInteger[] exponents = { BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(65537) };
+		BigInteger[] values = { BigInteger.ZERO, BigInteger.ONE, modulus.subtract(BigInteger.ONE) };
+		for (BigInteger exponent : exponents) {
+			CryptAsymmMontgomery montgomery = new CryptAsymmMontgomery(modulus, exponent);
+			for (BigInteger value : values)
+				assertEquals(value.modPow(exponent, modulus), montgomery.modPow(value));
+		}
+	}
+
+	@Test
+	void evenModulusNotSupported() {
+		assertFalse(CryptAsymmMontgomery.supports(BigInteger.valueOf(1 << 20)));
+		assertFalse(CryptAsymmMontgomery.supports(BigInteger.ONE));
+		assertTrue(CryptAsymmMontgomery.supports(BigInteger.valueOf(3)));
+	}
+
+	@Test
+	void montgomeryKeysDecryptTheSame() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		CryptAsymm.setModPowType(CryptAsymm.MODPOW_TYPE.MODPOW_MONTGOMERY);
+		try {
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+			byte[] montgomeryEnvelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+			CryptAsymm.setModPowType(CryptAsymm.MODPOW_TYPE.MODPOW_BIGINTEGER);
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(montgomeryEnvelope, pair.getCryptAsymmPrivateKey()));
+		} finally {
+			CryptAsymm.setModPowType(CryptAsymm.MODPOW_TYPE.MODPOW_BIGINTEGER);
+		}
+	}
+}
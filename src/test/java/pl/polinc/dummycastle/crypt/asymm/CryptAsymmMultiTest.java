@@ -0,0 +1,71 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.hash.HasherClient;
+
+class CryptAsymmMultiTest {
+
+	private static final byte[] PLAIN = "Plain text of the multi-recipient tests".getBytes();
+
+	private static List<CryptAsymmKeysPair> generatePairs() {
+		List<CryptAsymmKeysPair> pairs = new ArrayList<CryptAsymmKeysPair>();
+		pairs.add(CryptAsymmTestKeys.pair());
+		pairs.add(CryptAsymmTestKeys.multiPrimePair());
+		return pairs;
+	}
+
+	private static List<CryptAsymmPublicKey> publicKeys(List<CryptAsymmKeysPair> pairs) {
+		List<CryptAsymmPublicKey> keys = new ArrayList<CryptAsymmPublicKey>();
+		for (CryptAsymmKeysPair pair : pairs)
+			keys.add(pair.getCryptAsymmPublicKey());
+		return keys;
+	}
+
+	@Test
+	void everyRecipientDecrypts() {
+		List<CryptAsymmKeysPair> pairs = generatePairs();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, publicKeys(pairs));
+		assertEquals(CryptAsymm.ENVELOPE_MULTI, envelope[0]);
+		for (CryptAsymmKeysPair pair : pairs)
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void callingThreadAloneEncryptsTheSame() {
+		List<CryptAsymmKeysPair> pairs = generatePairs();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, publicKeys(pairs), Runnable::run, 1);
+		for (CryptAsymmKeysPair pair : pairs)
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void pairSharesFingerprint() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		assertEquals(pair.getCryptAsymmPublicKey().getFingerprint(), pair.getCryptAsymmPrivateKey().getFingerprint());
+		byte[] digest = HasherClient.digest(pair.getCryptAsymmPublicKey().getProduct().toByteArray(), 8);
+		assertEquals(ByteBuffer.wrap(digest).getLong(), pair.getCryptAsymmPublicKey().getFingerprint());
+	}
+
+	@Test
+	void otherKeyRejected() {
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, publicKeys(generatePairs()));
+		CryptAsymmKeysPair other = CryptAsymmTestKeys.otherPair();
+		assertThrows(IllegalArgumentException.class,
+				() -> CryptAsymm.decryptStream(envelope, other.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void noRecipientsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> CryptAsymm.encryptStream(PLAIN, new ArrayList<CryptAsymmPublicKey>()));
+	}
+}
@@ -0,0 +1,55 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the mean time per prime of the sieve search against
+ * BigInteger.probablePrime(), which key generation used before, for the
+ * primes of every KEY_SIZE_TYPE. Not a unit test - run it with
+ * {@code java pl.polinc.dummycastle.crypt.asymm.CryptAsymmPrimesBenchmark [seconds per case]}.
+ */
+public class CryptAsymmPrimesBenchmark {
+
+	private static final int[] KEY_SIZES = { 128, 256, 512, 1024, 2048, 4096 };
+
+	public static void main(String[] args) {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		Random random = new Random();
+		SecureRandom secureRandom = new SecureRandom();
+		CryptAsymmPrimes primes = CryptAsymmPrimes.getDefault();
+
+		System.out.println("Mean time per prime in ms, " + Runtime.getRuntime().availableProcessors()
+				+ " processors, " + parallelism + " windows in parallel");
+		System.out.printf("%-14s %6s %14s %14s %10s %10s%n", "key size", "prime", "probablePrime", "probablePrime",
+				"sieve", "sieve");
+		System.out.printf("%-14s %6s %14s %14s %10s %10s%n", "", "bits", "Random", "SecureRandom", "", "parallel");
+		for (int keySize : KEY_SIZES) {
+			int bits = keySize / 2;
+			System.out.printf("KEY_SIZE_%-5d %6d %14.2f %14.2f %10.2f %10.2f%n", keySize, bits,
+					measure(bits, seconds, b -> BigInteger.probablePrime(b, random)),
+					measure(bits, seconds, b -> BigInteger.probablePrime(b, secureRandom)),
+					measure(bits, seconds, b -> primes.generatePrime(b)),
+					measure(bits, seconds, b -> primes.generatePrime(b, parallelism)));
+		}
+	}
+
+	// Warms up, then searches for primes until the time is up
+	private static double measure(int bits, double seconds, IntFunction<BigInteger> search) {
+		for (int i = 0; i < 3; i++)
+			search.apply(bits);
+		long deadline = System.nanoTime() + (long) (seconds * 1e9);
+		long start = System.nanoTime();
+		int count = 0;
+		do {
+			if (search.apply(bits).bitLength() != bits)
+				throw new IllegalStateException("Prime of a wrong size");
+			count++;
+		} while (System.nanoTime() < deadline);
+		return (System.nanoTime() - start) / 1e6 / count;
+	}
+}
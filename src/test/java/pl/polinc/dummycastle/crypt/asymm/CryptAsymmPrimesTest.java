@@ -0,0 +1,82 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+class CryptAsymmPrimesTest {
+
+	private static final int[] SIZES = { 16, 17, 64, 256, 512 };
+
+	private static void assertPrime(BigInteger prime, int bits) {
+		assertEquals(bits, prime.bitLength());
+		assertTrue(prime.testBit(bits - 2), "second highest bit");
+		assertTrue(prime.isProbablePrime(CryptAsymmPrimes.PRIME_CERTAINTY));
+	}
+
+	@Test
+	void primesHaveExactSize() {
+		for (int bits : SIZES)
+			for (int i = 0; i < 5; i++)
+				assertPrime(CryptAsymmPrimes.getDefault().generatePrime(bits), bits);
+	}
+
+	@Test
+	void sameSeedGivesSamePrime() {
+		BigInteger prime = new CryptAsymmPrimes(new Random(15)).generatePrime(256);
+		assertEquals(prime, new CryptAsymmPrimes(new Random(15)).generatePrime(256));
+		assertPrime(prime, 256);
+	}
+
+	@Test
+	void parallelSearchFindsPrime() {
+		for (int bits : SIZES)
+			assertPrime(CryptAsymmPrimes.getDefault().generatePrime(bits, 3), bits);
+	}
+
+	@Test
+	void windowsSearchedOnExecutor() {
+		List<Runnable> windows = new ArrayList<Runnable>();
+		// The calling thread finds the prime while the other windows wait
+		assertPrime(CryptAsymmPrimes.getDefault().generatePrime(256, 4, null, windows::add), 256);
+		assertEquals(3, windows.size());
+		// They start after the prime is found and give up at once
+		for (Runnable window : windows)
+			window.run();
+
+		assertPrime(CryptAsymmPrimes.getDefault().generatePrime(256, 4, null, task -> {
+			throw new RejectedExecutionException();
+		}), 256);
+	}
+
+	@Test
+	void doneOwnerStopsParallelSearch() {
+		CompletableFuture<Void> owner = new CompletableFuture<Void>();
+		owner.cancel(false);
+		assertThrows(CancellationException.class,
+				() -> CryptAsymmPrimes.getDefault().generatePrime(512, 3, owner, ForkJoinPool.commonPool()));
+	}
+
+	@Test
+	void productOfTwoPrimesHasTwiceTheSize() {
+		BigInteger p = CryptAsymmPrimes.getDefault().generatePrime(128);
+		BigInteger q = CryptAsymmPrimes.getDefault().generatePrime(128);
+		assertEquals(256, p.multiply(q).bitLength());
+	}
+
+	@Test
+	void tooSmallPrimeRejected() {
+		assertThrows(IllegalArgumentException.class, () -> CryptAsymmPrimes.getDefault().generatePrime(15));
+	}
+}
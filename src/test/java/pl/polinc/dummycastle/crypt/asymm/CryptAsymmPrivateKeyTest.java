@@ -0,0 +1,194 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import org.junit.jupiter.api.Test;
+
+class CryptAsymmPrivateKeyTest {
+
+	private static final byte[] PLAIN = "Plain text of the private key tests".getBytes();
+
+	private static void assertSameKey(CryptAsymmPrivateKey expected, CryptAsymmPrivateKey actual) {
+		assertEquals(expected.getExponent(), actual.getExponent());
+		assertEquals(expected.getProduct(), actual.getProduct());
+		assertEquals(expected.getPrimeCount(), actual.getPrimeCount());
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	void crtKeyStringRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmPrivateKey key = pair.getCryptAsymmPrivateKey();
+		assertTrue(key.hasCrt());
+		CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey.createFromString(key.toString());
+		assertSameKey(key, parsed);
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, parsed));
+	}
+
+	@Test
+	void keyWithoutCrtDecryptsTheSame() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmPrivateKey key = pair.getCryptAsymmPrivateKey();
+		CryptAsymmPrivateKey plain = CryptAsymmPrivateKey.createFromNums(key.getExponent(), key.getProduct());
+		assertFalse(plain.hasCrt());
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, plain));
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, key));
+	}
+
+	@Test
+	void crtModPowMatchesBigInteger() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		for (int i = 1; i < 50; i++) {
+			BigInteger value = BigInteger.valueOf(i).pow(37).mod(key.getProduct());
+			assertEquals(value.modPow(key.getExponent(), key.getProduct()), key.modPow(value));
+		}
+	}
+
+	@Test
+	void keyStringOfOlderVersionsParses() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey
+				.createFromString(key.getExponent() + CryptAsymmKeyFormat.KEY_SEPARATOR + key.getProduct());
+		assertEquals(key.getExponent(), parsed.getExponent());
+		assertEquals(key.getProduct(), parsed.getProduct());
+	}
+
+	@Test
+	void keyKeepsFormOfString() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		CryptAsymmPrivateKey crt = CryptAsymmPrivateKey.createFromString(key.toString());
+		String plain = key.getExponent() + CryptAsymmKeyFormat.KEY_SEPARATOR + key.getProduct();
+		CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey.createFromString(plain);
+		assertFalse(parsed.hasCrt());
+		assertEquals(plain, parsed.toString());
+		assertEquals(plain, CryptAsymmPrivateKey.createFromBytes(parsed.toBytes()).toString());
+		assertEquals(key.toString(), crt.toString());
+		assertTrue(crt.hasCrt());
+	}
+
+	@Test
+	void crtKeyBytesRoundTrip() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		assertSameKey(key, CryptAsymmPrivateKey.createFromBytes(key.toBytes()));
+		assertSameKey(key, CryptAsymmPrivateKey.createFromString(key.toBase64()));
+	}
+
+	@Test
+	void publicKeyBytesRoundTrip() {
+		CryptAsymmPublicKey key = CryptAsymmTestKeys.pair().getCryptAsymmPublicKey();
+		CryptAsymmPublicKey parsed = CryptAsymmPublicKey.createFromBytes(key.toBytes());
+		assertEquals(key.getExponent(), parsed.getExponent());
+		assertEquals(key.getProduct(), parsed.getProduct());
+		assertSame(parsed, CryptAsymmPublicKey.createFromString(key.toBase64()));
+		assertSame(parsed, CryptAsymmPublicKey.createFromString(key.toString()));
+	}
+
+	@Test
+	void sameNumbersShareOneKey() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey.createFromString(key.toString());
+		assertSame(parsed, CryptAsymmPrivateKey.createFromBytes(key.toBytes()));
+		assertSame(parsed, CryptAsymmPrivateKey.createFromString(key.toString()));
+	}
+
+	@Test
+	void tamperedCrtDataDropped() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmPrivateKey key = pair.getCryptAsymmPrivateKey();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		String[] fields = key.toString().split(CryptAsymmKeyFormat.KEY_SEPARATOR);
+		// Fields after the marker: p, q, dP, dQ, qInv
+		for (int i = 3; i < fields.length; i++) {
+			String[] tampered = fields.clone();
+			tampered[i] = new BigInteger(tampered[i]).add(BigInteger.valueOf(2)).toString();
+			CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey
+					.createFromString(String.join(CryptAsymmKeyFormat.KEY_SEPARATOR, tampered));
+			assertFalse(parsed.hasCrt());
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, parsed));
+		}
+	}
+
+	@Test
+	void tamperedCrtDataDoesNotReplaceInternedKey() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		CryptAsymmPrivateKey interned = CryptAsymmPrivateKey.createFromBytes(key.toBytes());
+		byte[] tampered = key.toBytes();
+		tampered[tampered.length - 1] ^= 1;
+		assertFalse(CryptAsymmPrivateKey.createFromBytes(tampered).hasCrt());
+		assertSame(interned, CryptAsymmPrivateKey.createFromBytes(key.toBytes()));
+		assertTrue(interned.hasCrt());
+	}
+
+	@Test
+	void wrongPrimesRejected() {
+		CryptAsymmPrivateKey key = CryptAsymmTestKeys.pair().getCryptAsymmPrivateKey();
+		assertThrows(IllegalArgumentException.class, () -> CryptAsymmPrivateKey.createFromNums(key.getExponent(),
+				key.getProduct(), BigInteger.valueOf(7), BigInteger.valueOf(11)));
+	}
+
+	@Test
+	void multiPrimeKeyRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.multiPrimePair();
+		CryptAsymmPrivateKey key = pair.getCryptAsymmPrivateKey();
+		assertEquals(3, key.getPrimeCount());
+		assertSameKey(key, CryptAsymmPrivateKey.createFromString(key.toString()));
+		assertSameKey(key, CryptAsymmPrivateKey.createFromBytes(key.toBytes()));
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey.createFromString(key.toBase64());
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, parsed));
+	}
+
+	@Test
+	void fourPrimeKeyDecrypts() {
+		SecureRandom random = new SecureRandom();
+		BigInteger e = BigInteger.valueOf(65537);
+		BigInteger[] primes = new BigInteger[4];
+		BigInteger n = BigInteger.ONE;
+		BigInteger phi = BigInteger.ONE;
+		for (int i = 0; i < primes.length; i++) {
+			do
+				primes[i] = BigInteger.probablePrime(256, random);
+			while (!primes[i].subtract(BigInteger.ONE).gcd(e).equals(BigInteger.ONE));
+			n = n.multiply(primes[i]);
+			phi = phi.multiply(primes[i].subtract(BigInteger.ONE));
+		}
+		CryptAsymmPrivateKey key = CryptAsymmPrivateKey.createFromNums(e.modInverse(phi), n, primes);
+		assertEquals(4, key.getPrimeCount());
+		assertSameKey(key, CryptAsymmPrivateKey.createFromString(key.toString()));
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, CryptAsymmPublicKey.createFromNums(e, n));
+		assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, key));
+	}
+
+	@Test
+	void tamperedMultiPrimeDataDropped() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.multiPrimePair();
+		byte[] envelope = CryptAsymm.encryptStream(PLAIN, pair.getCryptAsymmPublicKey());
+		String[] fields = pair.getCryptAsymmPrivateKey().toString().split(CryptAsymmKeyFormat.KEY_SEPARATOR);
+		// The last three fields are the third prime, its exponent and its coefficient
+		for (int i = fields.length - 3; i < fields.length; i++) {
+			String[] tampered = fields.clone();
+			tampered[i] = new BigInteger(tampered[i]).add(BigInteger.valueOf(2)).toString();
+			CryptAsymmPrivateKey parsed = CryptAsymmPrivateKey
+					.createFromString(String.join(CryptAsymmKeyFormat.KEY_SEPARATOR, tampered));
+			assertEquals(0, parsed.getPrimeCount());
+			assertArrayEquals(PLAIN, CryptAsymm.decryptStream(envelope, parsed));
+		}
+	}
+
+	@Test
+	void tooManyPrimesRejected() {
+		assertEquals(2, CryptAsymmKeys.getMaxPrimeCount(CryptAsymmKeys.KEY_SIZE_TYPE.KEY_SIZE_1024));
+		assertThrows(IllegalArgumentException.class, () -> new CryptAsymmKeys(
+				CryptAsymmKeys.KEY_SIZE_TYPE.KEY_SIZE_1024, CryptAsymmKeys.EXPONENT_TYPE.EXPONENT_65537, 3));
+	}
+}
@@ -0,0 +1,97 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class CryptAsymmSessionTest {
+
+	private static byte[] message(int i) {
+		return ("Message " + i + " of the session tests").getBytes();
+	}
+
+	@Test
+	void sessionEnvelopesRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmSender sender = new CryptAsymmSender(pair.getCryptAsymmPublicKey());
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(pair.getCryptAsymmPrivateKey());
+		for (int i = 0; i < 40; i++) {
+			byte[] envelope = sender.encrypt(message(i));
+			assertEquals(CryptAsymm.ENVELOPE_SESSION, envelope[0]);
+			assertArrayEquals(message(i), receiver.decrypt(envelope));
+		}
+		assertEquals(1, receiver.getSessionCount());
+	}
+
+	@Test
+	void gemIsAttachedEveryInterval() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmSender sender = new CryptAsymmSender(pair.getCryptAsymmPublicKey(), 100, 60000, 4);
+		int gemLen = CryptAsymm.gemSize(pair.getCryptAsymmPublicKey());
+		for (int i = 0; i < 12; i++) {
+			byte[] envelope = sender.encrypt(message(i));
+			// A gem makes the envelope longer than the header and the data
+			boolean withGem = envelope.length > gemLen + message(i).length;
+			assertEquals(i % 4 == 0, withGem);
+		}
+	}
+
+	@Test
+	void sessionRecoversFromNextGem() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmSender sender = new CryptAsymmSender(pair.getCryptAsymmPublicKey(), 100, 60000, 4);
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(pair.getCryptAsymmPrivateKey());
+		// The first envelope with the gem is lost
+		sender.encrypt(message(0));
+		for (int i = 1; i < 4; i++) {
+			byte[] envelope = sender.encrypt(message(i));
+			assertThrows(IllegalStateException.class, () -> receiver.decrypt(envelope));
+		}
+		for (int i = 4; i < 8; i++)
+			assertArrayEquals(message(i), receiver.decrypt(sender.encrypt(message(i))));
+	}
+
+	@Test
+	void attachGemAfterRequest() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmSender sender = new CryptAsymmSender(pair.getCryptAsymmPublicKey());
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(pair.getCryptAsymmPrivateKey());
+		sender.encrypt(message(0));
+		assertThrows(IllegalStateException.class, () -> receiver.decrypt(sender.encrypt(message(1))));
+		sender.attachGem();
+		assertArrayEquals(message(2), receiver.decrypt(sender.encrypt(message(2))));
+		assertArrayEquals(message(3), receiver.decrypt(sender.encrypt(message(3))));
+	}
+
+	@Test
+	void sessionRotatedAfterMaxMessages() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmSender sender = new CryptAsymmSender(pair.getCryptAsymmPublicKey(), 3, 60000);
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(pair.getCryptAsymmPrivateKey());
+		for (int i = 0; i < 7; i++)
+			assertArrayEquals(message(i), receiver.decrypt(sender.encrypt(message(i))));
+		assertEquals(3, receiver.getSessionCount());
+	}
+
+	@Test
+	void rotateStartsNewSession() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmSender sender = new CryptAsymmSender(pair.getCryptAsymmPublicKey());
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(pair.getCryptAsymmPrivateKey());
+		assertArrayEquals(message(0), receiver.decrypt(sender.encrypt(message(0))));
+		sender.rotate();
+		assertArrayEquals(message(1), receiver.decrypt(sender.encrypt(message(1))));
+		assertEquals(2, receiver.getSessionCount());
+	}
+
+	@Test
+	void receiverDecryptsPlainEnvelopes() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmReceiver receiver = new CryptAsymmReceiver(pair.getCryptAsymmPrivateKey());
+		byte[] envelope = CryptAsymm.encryptStream(message(0), pair.getCryptAsymmPublicKey());
+		assertArrayEquals(message(0), receiver.decrypt(envelope));
+		assertEquals(0, receiver.getSessionCount());
+	}
+}
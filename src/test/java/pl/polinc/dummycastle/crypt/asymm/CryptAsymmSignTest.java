@@ -0,0 +1,97 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.DummyCastle;
+
+class CryptAsymmSignTest {
+
+	private static final byte[] DATA = "Data of the signature tests".getBytes();
+
+	@Test
+	void signatureVerifies() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] signature = CryptAsymm.sign(DATA, pair.getCryptAsymmPrivateKey());
+		assertTrue(CryptAsymm.verify(DATA, signature, pair.getCryptAsymmPublicKey()));
+	}
+
+	@Test
+	void tamperedDataDoesNotVerify() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] signature = CryptAsymm.sign(DATA, pair.getCryptAsymmPrivateKey());
+		for (int i = 0; i < DATA.length; i++) {
+			byte[] tampered = DATA.clone();
+			tampered[i] ^= 1;
+			assertFalse(CryptAsymm.verify(tampered, signature, pair.getCryptAsymmPublicKey()));
+		}
+	}
+
+	@Test
+	void tamperedSignatureDoesNotVerify() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] signature = CryptAsymm.sign(DATA, pair.getCryptAsymmPrivateKey());
+		for (int i = 0; i < signature.length; i++) {
+			byte[] tampered = signature.clone();
+			tampered[i] ^= 0x10;
+			assertFalse(CryptAsymm.verify(DATA, tampered, pair.getCryptAsymmPublicKey()));
+		}
+		assertFalse(CryptAsymm.verify(DATA, Arrays.copyOf(signature, signature.length - 1),
+				pair.getCryptAsymmPublicKey()));
+	}
+
+	@Test
+	void otherKeyDoesNotVerify() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		CryptAsymmKeysPair other = CryptAsymmTestKeys.otherPair();
+		byte[] signature = CryptAsymm.sign(DATA, pair.getCryptAsymmPrivateKey());
+		assertFalse(CryptAsymm.verify(DATA, signature, other.getCryptAsymmPublicKey()));
+	}
+
+	@Test
+	void multiPrimeSignatureVerifies() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.multiPrimePair();
+		byte[] signature = CryptAsymm.sign(DATA, pair.getCryptAsymmPrivateKey());
+		assertTrue(CryptAsymm.verify(DATA, signature, pair.getCryptAsymmPublicKey()));
+	}
+
+	@Test
+	void batchMatchesSingleChecks() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		List<byte[]> data = new ArrayList<byte[]>();
+		List<byte[]> signatures = new ArrayList<byte[]>();
+		boolean[] expected = new boolean[12];
+		for (int i = 0; i < expected.length; i++) {
+			byte[] item = ("Item " + i).getBytes();
+			byte[] signature = CryptAsymm.sign(item, pair.getCryptAsymmPrivateKey());
+			// Every third signature is tampered and every fourth malformed
+			if (i % 3 == 0)
+				signature[signature.length - 1] ^= 1;
+			else if (i % 4 == 0)
+				signature = new byte[] { 1 };
+			data.add(item);
+			signatures.add(signature);
+			expected[i] = i % 3 != 0 && i % 4 != 0;
+		}
+		assertArrayEquals(expected, CryptAsymm.verifyBatch(data, signatures, pair.getCryptAsymmPublicKey()));
+		assertArrayEquals(expected,
+				CryptAsymm.verifyBatch(data, signatures, pair.getCryptAsymmPublicKey(), Runnable::run, 1));
+	}
+
+	@Test
+	void dummyCastleSignatureRoundTrip() {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		String signature = new DummyCastle().signWith("Signed text", pair.getCryptAsymmPrivateKey()).getResult();
+		assertFalse(new DummyCastle().verifyWith("Signed text", signature, pair.getCryptAsymmPublicKey()).isError());
+		assertTrue(new DummyCastle().verifyWith("Signed texT", signature, pair.getCryptAsymmPublicKey()).isError());
+		assertTrue(new DummyCastle().verifyWith("Signed text", "not a signature", pair.getCryptAsymmPublicKey())
+				.isError());
+	}
+}
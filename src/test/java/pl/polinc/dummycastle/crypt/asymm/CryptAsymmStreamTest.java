@@ -0,0 +1,118 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CryptAsymmStreamTest {
+
+	private static byte[] data(int len) {
+		byte[] data = new byte[len];
+		new Random(len).nextBytes(data);
+		return data;
+	}
+
+	// Writes in chunks of changing size, some of them a byte at a time
+	private static byte[] encryptInChunks(byte[] plain, CryptAsymmKey key) throws IOException {
+		ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+		try (OutputStream out = new CryptAsymmOutputStream(envelope, key)) {
+			int off = 0;
+			for (int chunk = 1; off < plain.length; chunk = chunk * 3 % 10007) {
+				int len = Math.min(chunk, plain.length - off);
+				if (len == 1)
+					out.write(plain[off]);
+				else
+					out.write(plain, off, len);
+				off += len;
+			}
+		}
+		return envelope.toByteArray();
+	}
+
+	private static byte[] decryptInChunks(byte[] envelope, CryptAsymmKey key) throws IOException {
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		try (InputStream in = new CryptAsymmInputStream(new ByteArrayInputStream(envelope), key)) {
+			byte[] buffer = new byte[4099];
+			for (int chunk = 1;; chunk = chunk * 5 % buffer.length) {
+				int len = in.read(buffer, 0, chunk);
+				if (len < 0)
+					break;
+				plain.write(buffer, 0, len);
+				int b = in.read();
+				if (b < 0)
+					break;
+				plain.write(b);
+			}
+		}
+		return plain.toByteArray();
+	}
+
+	@Test
+	void streamEnvelopeDecryptsOneShot() throws IOException {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] plain = data(100000);
+		byte[] envelope = encryptInChunks(plain, pair.getCryptAsymmPublicKey());
+		assertEquals(CryptAsymm.encryptStream(plain, pair.getCryptAsymmPublicKey()).length, envelope.length);
+		assertArrayEquals(plain, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void oneShotEnvelopeDecryptsStreaming() throws IOException {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] plain = data(100000);
+		byte[] envelope = CryptAsymm.encryptStream(plain, pair.getCryptAsymmPublicKey());
+		assertArrayEquals(plain, decryptInChunks(envelope, pair.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void multiRecipientEnvelopeDecryptsStreaming() throws IOException {
+		CryptAsymmKeysPair first = CryptAsymmTestKeys.pair();
+		CryptAsymmKeysPair second = CryptAsymmTestKeys.otherPair();
+		byte[] plain = data(10000);
+		byte[] envelope = CryptAsymm.encryptStream(plain,
+				Arrays.asList(first.getCryptAsymmPublicKey(), second.getCryptAsymmPublicKey()));
+		assertArrayEquals(plain, decryptInChunks(envelope, first.getCryptAsymmPrivateKey()));
+		assertArrayEquals(plain, decryptInChunks(envelope, second.getCryptAsymmPrivateKey()));
+	}
+
+	@Test
+	void emptyStreamRoundTrip() throws IOException {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] envelope = encryptInChunks(new byte[0], pair.getCryptAsymmPublicKey());
+		assertEquals(0, CryptAsymm.decryptStream(envelope, pair.getCryptAsymmPrivateKey()).length);
+		assertEquals(0, decryptInChunks(envelope, pair.getCryptAsymmPrivateKey()).length);
+	}
+
+	@Test
+	void channelRoundTrip() throws IOException {
+		CryptAsymmKeysPair pair = CryptAsymmTestKeys.pair();
+		byte[] plain = data(50000);
+		ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+		try (WritableByteChannel out = CryptAsymm.encryptChannel(Channels.newChannel(envelope),
+				pair.getCryptAsymmPublicKey())) {
+			out.write(ByteBuffer.wrap(plain));
+		}
+		ByteBuffer decrypted = ByteBuffer.allocate(plain.length);
+		try (ReadableByteChannel in = CryptAsymm.decryptChannel(
+				Channels.newChannel(new ByteArrayInputStream(envelope.toByteArray())),
+				pair.getCryptAsymmPrivateKey())) {
+			while (decrypted.hasRemaining())
+				if (in.read(decrypted) < 0)
+					break;
+		}
+		assertArrayEquals(plain, decrypted.array());
+	}
+}
@@ -0,0 +1,43 @@
+package pl.polinc.dummycastle.crypt.asymm;
+
+/**
+ * Key pairs shared by the asymmetric tests. Generating keys is the slowest part
+ * of the tests, so every pair is generated once, on first use.
+ */
+final class CryptAsymmTestKeys {
+
+	private static CryptAsymmKeysPair pair;
+	private static CryptAsymmKeysPair otherPair;
+	private static CryptAsymmKeysPair multiPrimePair;
+
+	private CryptAsymmTestKeys() {
+	}
+
+	/**
+	 * @return 512 bit pair.
+	 */
+	static synchronized CryptAsymmKeysPair pair() {
+		if (pair == null)
+			pair = new CryptAsymmKeys().generateKeys();
+		return pair;
+	}
+
+	/**
+	 * @return another 512 bit pair, for tests that need a wrong key.
+	 */
+	static synchronized CryptAsymmKeysPair otherPair() {
+		if (otherPair == null)
+			otherPair = new CryptAsymmKeys().generateKeys();
+		return otherPair;
+	}
+
+	/**
+	 * @return 2048 bit pair made of three primes.
+	 */
+	static synchronized CryptAsymmKeysPair multiPrimePair() {
+		if (multiPrimePair == null)
+			multiPrimePair = new CryptAsymmKeys(CryptAsymmKeys.KEY_SIZE_TYPE.KEY_SIZE_2048,
+					CryptAsymmKeys.EXPONENT_TYPE.EXPONENT_65537, 3).generateKeys();
+		return multiPrimePair;
+	}
+}
@@ -0,0 +1,76 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey.KEY_TYPE;
+
+class CryptEngineTest {
+
+	private static final CryptSymmKey[] KEYS = { new CryptSymmKey("abcdefghi", KEY_TYPE.TYPE_SEED),
+			new CryptSymmKey("KeyOf16Chars!!!!", KEY_TYPE.TYPE_ROT), new CryptSymmKey() };
+
+	@Test
+	void enginesMatchReference() {
+		byte[] data = CryptSymmKeyTest.data(3000);
+		for (ENGINE_TYPE type : ENGINE_TYPE.values()) {
+			CryptEngine engine = CryptEngine.getEngine(type);
+			for (CryptSymmKey key : KEYS)
+				// Lengths and offsets around word and table boundaries
+				for (int len : new int[] { 0, 1, 7, 8, 9, 63, 64, 65, 1000, 2999 })
+					for (int off : new int[] { 0, 1, 3 })
+						for (int keyPos : new int[] { 0, 5, 256, 4095 }) {
+							byte[] src = Arrays.copyOfRange(data, 0, off + len);
+							byte[] dst = new byte[off + len + 2];
+							engine.crypt(src, off, dst, 2, len, key, keyPos);
+							byte[] expected = CryptSymmKeyTest.reference(Arrays.copyOfRange(src, off, off + len),
+									key, keyPos);
+							assertArrayEquals(expected, Arrays.copyOfRange(dst, 2, 2 + len));
+						}
+		}
+	}
+
+	@Test
+	void enginesCryptInPlace() {
+		byte[] data = CryptSymmKeyTest.data(5000);
+		for (ENGINE_TYPE type : ENGINE_TYPE.values()) {
+			byte[] inPlace = data.clone();
+			CryptEngine.getEngine(type).crypt(inPlace, 0, inPlace, 0, inPlace.length, KEYS[0], 17);
+			assertArrayEquals(CryptSymmKeyTest.reference(data, KEYS[0], 17), inPlace);
+		}
+	}
+
+	@Test
+	void encryptionDoesNotDependOnEngine() {
+		byte[] data = CryptSymmKeyTest.data(10000);
+		byte[] expected = CryptSymm.encryptStream(data, KEYS[2]);
+		assertArrayEquals(CryptSymmKeyTest.reference(data, KEYS[2], 0), expected);
+		for (ENGINE_TYPE type : ENGINE_TYPE.values()) {
+			byte[] encrypted = CryptSymm.encryptStream(data, KEYS[2], type);
+			assertArrayEquals(expected, encrypted);
+			assertArrayEquals(data, CryptSymm.decryptStream(encrypted, KEYS[2], type));
+		}
+	}
+
+	@Test
+	void defaultIsWordEngine() {
+		assertEquals(ENGINE_TYPE.ENGINE_WORD, CryptEngine.DEFAULT_ENGINE_TYPE);
+		assertSame(CryptEngine.getEngine(ENGINE_TYPE.ENGINE_WORD), CryptEngine.getDefault());
+	}
+
+	@Test
+	void missingEnginesFallBack() {
+		assertTrue(CryptEngine.isAvailable(ENGINE_TYPE.ENGINE_BYTE));
+		if (!CryptEngine.isAvailable(ENGINE_TYPE.ENGINE_VECTOR))
+			assertSame(CryptEngine.getEngine(ENGINE_TYPE.ENGINE_WORD), CryptEngine.getEngine(ENGINE_TYPE.ENGINE_VECTOR));
+		if (!CryptEngine.isAvailable(ENGINE_TYPE.ENGINE_WORD))
+			assertSame(CryptEngine.getEngine(ENGINE_TYPE.ENGINE_BYTE), CryptEngine.getEngine(ENGINE_TYPE.ENGINE_WORD));
+	}
+}
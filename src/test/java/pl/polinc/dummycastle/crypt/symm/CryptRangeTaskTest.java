@@ -0,0 +1,99 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
+class CryptRangeTaskTest {
+
+	private static final CryptSymmKey KEY = new CryptSymmKey("Key of the parallel tests");
+
+	@Test
+	void rangesMatchReference() {
+		byte[] data = CryptSymmKeyTest.data(100003);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (ENGINE_TYPE type : ENGINE_TYPE.values()) {
+				byte[] encrypted = new byte[data.length + 5];
+				pool.invoke(new CryptRangeTask(data, 0, encrypted, 5, data.length, KEY, 301,
+						CryptEngine.getEngine(type), 1000));
+				byte[] expected = new byte[encrypted.length];
+				System.arraycopy(CryptSymmKeyTest.reference(data, KEY, 301), 0, expected, 5, data.length);
+				assertArrayEquals(expected, encrypted, type.toString());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void largeArrayMatchesReference() {
+		int threshold = CryptSymm.getParallelThreshold();
+		CryptSymm.setParallelThreshold(1000);
+		try {
+			byte[] data = CryptSymmKeyTest.data(1 << 20);
+			byte[] encrypted = CryptSymm.encryptStreamFrom(data, KEY, 7);
+			assertArrayEquals(CryptSymmKeyTest.reference(data, KEY, 7), encrypted);
+
+			encrypted = CryptSymm.encryptStream(data, KEY);
+			new CryptClient(KEY).cryptInside(encrypted);
+			assertArrayEquals(data, encrypted);
+		} finally {
+			CryptSymm.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	void arrayRangesMatchReference() {
+		int threshold = CryptSymm.getParallelThreshold();
+		CryptSymm.setParallelThreshold(1000);
+		try {
+			byte[] data = CryptSymmKeyTest.data(1 << 20);
+			byte[] expected = CryptSymmKeyTest.reference(data, KEY, 11);
+			byte[] encrypted = new byte[data.length + 3];
+			CryptSymm.encryptStream(data, 0, data.length, encrypted, 3, KEY, 11);
+			assertArrayEquals(expected, Arrays.copyOfRange(encrypted, 3, encrypted.length));
+			byte[] decrypted = new byte[data.length];
+			CryptSymm.decryptStream(encrypted, 3, data.length, decrypted, 0, KEY, 11);
+			assertArrayEquals(data, decrypted);
+		} finally {
+			CryptSymm.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	void largeHeapBufferMatchesReference() {
+		int threshold = CryptSymm.getParallelThreshold();
+		CryptSymm.setParallelThreshold(1000);
+		try {
+			byte[] data = CryptSymmKeyTest.data(1 << 20);
+			byte[] expected = CryptSymmKeyTest.reference(data, KEY, 11);
+			ByteBuffer heap = ByteBuffer.allocate(data.length + 5);
+			heap.position(5);
+			CryptSymm.encryptStream(ByteBuffer.wrap(data), heap, KEY, 11);
+			assertEquals(heap.capacity(), heap.position());
+			assertArrayEquals(expected, Arrays.copyOfRange(heap.array(), 5, heap.capacity()));
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+			heap.position(5);
+			CryptSymm.decryptStream(heap, direct, KEY, 11);
+			direct.flip();
+			assertEquals(ByteBuffer.wrap(data), direct);
+		} finally {
+			CryptSymm.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	void negativeThresholdRejected() {
+		assertThrows(IllegalArgumentException.class, () -> CryptSymm.setParallelThreshold(-1));
+		assertEquals(8 * 1024 * 1024, CryptSymm.getParallelThreshold());
+	}
+}
@@ -0,0 +1,198 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
+class CryptSymmChannelTest {
+
+	private static final CryptSymmKey KEY = new CryptSymmKey("Key of the channel tests");
+	private static final long[] LONG_POSITIONS = { Integer.MAX_VALUE - 3L, Integer.MAX_VALUE + 1L, 1L << 40 };
+
+	private static byte[] reference(byte[] data, CryptSymmKey key, long keyPos) {
+		byte[] result = new byte[data.length];
+		for (int i = 0; i < data.length; i++)
+			result[i] = (byte) (data[i] ^ key.getKeyAt(keyPos + i));
+		return result;
+	}
+
+	@Test
+	void longKeyPosMatchesReference() {
+		byte[] data = CryptSymmKeyTest.data(1000);
+		for (ENGINE_TYPE type : ENGINE_TYPE.values())
+			for (long keyPos : LONG_POSITIONS) {
+				byte[] encrypted = new byte[data.length];
+				CryptEngine.getEngine(type).crypt(data, 0, encrypted, 0, data.length, KEY, keyPos);
+				assertArrayEquals(reference(data, KEY, keyPos), encrypted, type + " at " + keyPos);
+			}
+	}
+
+	@Test
+	void longKeyPosRoundTrip() {
+		byte[] data = CryptSymmKeyTest.data(500);
+		for (long keyPos : LONG_POSITIONS)
+			assertArrayEquals(data,
+					CryptSymm.decryptStreamFrom(CryptSymm.encryptStreamFrom(data, KEY, keyPos), KEY, keyPos));
+	}
+
+	@Test
+	void channelMatchesOneShot() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(20000);
+		Path file = Files.createTempFile("CryptSymmChannelTest", ".bin");
+		try {
+			try (CryptSymmChannel channel = new CryptSymmChannel(FileChannel.open(file, StandardOpenOption.WRITE), KEY)) {
+				assertEquals(data.length, channel.write(ByteBuffer.wrap(data)));
+			}
+			assertArrayEquals(CryptSymm.encryptStream(data, KEY), Files.readAllBytes(file));
+
+			try (CryptSymmChannel channel = new CryptSymmChannel(FileChannel.open(file, StandardOpenOption.READ), KEY)) {
+				ByteBuffer all = ByteBuffer.allocate(data.length);
+				while (all.hasRemaining() && channel.read(all) > 0)
+					;
+				assertArrayEquals(data, all.array());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void channelSeeks() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(10000);
+		Path file = Files.createTempFile("CryptSymmChannelTest", ".bin");
+		try {
+			Files.write(file, CryptSymm.encryptStreamFrom(data, KEY, 77));
+			try (CryptSymmChannel channel = new CryptSymmChannel(
+					FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE), KEY, 77,
+					ENGINE_TYPE.ENGINE_WORD)) {
+				ByteBuffer part = ByteBuffer.allocateDirect(300);
+				channel.position(4321).read(part);
+				part.flip();
+				for (int i = 0; i < 300; i++)
+					assertEquals(data[4321 + i], part.get(i));
+
+				byte[] patch = CryptSymmKeyTest.data(50);
+				channel.position(9000).write(ByteBuffer.wrap(patch));
+				System.arraycopy(patch, 0, data, 9000, patch.length);
+			}
+			assertArrayEquals(data, CryptSymm.decryptStreamFrom(Files.readAllBytes(file), KEY, 77));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void appendedBytesMatchOneShot() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(20000);
+		Path file = Files.createTempFile("CryptSymmChannelTest", ".bin");
+		try {
+			Files.write(file, CryptSymm.encryptStream(Arrays.copyOf(data, 12345), KEY));
+			try (CryptSymmChannel channel = new CryptSymmChannel(FileChannel.open(file, StandardOpenOption.APPEND),
+					KEY)) {
+				// Writes go to the end whatever the position
+				channel.position(100);
+				channel.write(ByteBuffer.wrap(data, 12345, 5000));
+				channel.write(ByteBuffer.wrap(data, 17345, data.length - 17345));
+			}
+			assertArrayEquals(CryptSymm.encryptStream(data, KEY), Files.readAllBytes(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void fullChannelTakesPartOfBytes() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(20000);
+		ArrayChannel target = new ArrayChannel(10000);
+		CryptSymmChannel channel = new CryptSymmChannel(target, KEY);
+		ByteBuffer src = ByteBuffer.wrap(data);
+		assertEquals(10000, channel.write(src));
+		assertEquals(10000, src.position());
+		assertEquals(0, channel.write(src));
+
+		target.capacity = data.length;
+		assertEquals(10000, channel.write(src));
+		assertArrayEquals(CryptSymm.encryptStream(data, KEY), target.bytes.toByteArray());
+	}
+
+	@Test
+	void channelWritingElsewhereRejected() {
+		ArrayChannel target = new ArrayChannel(1000) {
+			@Override
+			public long position() {
+				// Reports a position the bytes do not go to
+				return 0;
+			}
+		};
+		CryptSymmChannel channel = new CryptSymmChannel(target, KEY);
+		assertThrows(IOException.class, () -> channel.write(ByteBuffer.wrap(CryptSymmKeyTest.data(100))));
+	}
+
+	// Appends to an array until it holds capacity bytes and takes no more, as a
+	// full non-blocking channel would
+	private static class ArrayChannel implements SeekableByteChannel {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int capacity;
+
+		ArrayChannel(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			int n = Math.min(src.remaining(), capacity - bytes.size());
+			byte[] chunk = new byte[n];
+			src.get(chunk);
+			bytes.write(chunk, 0, n);
+			return n;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			return -1;
+		}
+
+		@Override
+		public long position() {
+			return bytes.size();
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) {
+			return this;
+		}
+
+		@Override
+		public long size() {
+			return bytes.size();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) {
+			return this;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
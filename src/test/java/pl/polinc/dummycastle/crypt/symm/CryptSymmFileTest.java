@@ -0,0 +1,66 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class CryptSymmFileTest {
+
+	private static final CryptSymmKey KEY = new CryptSymmKey("Key of the file tests");
+	private static final CryptSymmKey NEW_KEY = new CryptSymmKey("Another key of the file tests");
+
+	@Test
+	void encryptedFileMatchesOneShot() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(100000);
+		Path plain = Files.createTempFile("CryptSymmFileTest", ".txt");
+		Path encrypted = Files.createTempFile("CryptSymmFileTest", ".bin");
+		Path decrypted = Files.createTempFile("CryptSymmFileTest", ".txt");
+		try {
+			Files.write(plain, data);
+			CryptSymmFile.Report report = CryptSymmFile.cryptFile(plain, encrypted, KEY, null, 0, 4096,
+					ForkJoinPool.commonPool());
+			assertEquals(data.length, report.getBytes());
+			assertEquals(25, report.getChunks());
+			assertArrayEquals(CryptSymm.encryptStream(data, KEY), Files.readAllBytes(encrypted));
+
+			CryptSymmFile.decryptFile(encrypted, decrypted, KEY);
+			assertArrayEquals(data, Files.readAllBytes(decrypted));
+		} finally {
+			Files.delete(plain);
+			Files.delete(encrypted);
+			Files.delete(decrypted);
+		}
+	}
+
+	@Test
+	void fileReencryptedInPlace() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(30001);
+		Path file = Files.createTempFile("CryptSymmFileTest", ".bin");
+		try {
+			Files.write(file, CryptSymm.encryptStream(data, KEY));
+			CryptSymmFile.cryptFile(file, file, KEY, NEW_KEY, 0, 1000, ForkJoinPool.commonPool());
+			assertArrayEquals(CryptSymm.encryptStream(data, NEW_KEY), Files.readAllBytes(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void emptyFileCrypted() throws IOException {
+		Path plain = Files.createTempFile("CryptSymmFileTest", ".txt");
+		Path encrypted = Files.createTempFile("CryptSymmFileTest", ".bin");
+		try {
+			assertEquals(0, CryptSymmFile.encryptFile(plain, encrypted, KEY).getChunks());
+			assertEquals(0, Files.size(encrypted));
+		} finally {
+			Files.delete(plain);
+			Files.delete(encrypted);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey.KEY_TYPE;
+
+class CryptSymmKeyCacheTest {
+
+	@Test
+	void sameDataGivesSameKey() {
+		CryptSymmKeyCache cache = new CryptSymmKeyCache();
+		CryptSymmKey key = cache.get("cached key", KEY_TYPE.TYPE_SEED);
+		assertSame(key, cache.get("cached key", KEY_TYPE.TYPE_SEED));
+		assertNotSame(key, cache.get("cached key", KEY_TYPE.TYPE_ROT));
+		assertNotSame(key, cache.get("other key", KEY_TYPE.TYPE_SEED));
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(3, cache.getSize());
+	}
+
+	@Test
+	void cachedKeyCryptsLikeNewKey() {
+		byte[] data = CryptSymmKeyTest.data(1000);
+		CryptSymmKey cached = CryptSymmKey.createFromString("key from the shared cache");
+		assertSame(cached, CryptSymmKey.createFromString("key from the shared cache"));
+		assertArrayEquals(CryptSymm.encryptStream(data, new CryptSymmKey("key from the shared cache")),
+				CryptSymm.encryptStream(data, cached));
+	}
+
+	@Test
+	void leastRecentlyUsedEvicted() {
+		CryptSymmKeyCache cache = new CryptSymmKeyCache(2, CryptSymmKeyCache.DEFAULT_TTL);
+		CryptSymmKey first = cache.get("first", KEY_TYPE.TYPE_SEED);
+		cache.get("second", KEY_TYPE.TYPE_SEED);
+		cache.get("first", KEY_TYPE.TYPE_SEED);
+		cache.get("third", KEY_TYPE.TYPE_SEED);
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictions());
+		assertSame(first, cache.get("first", KEY_TYPE.TYPE_SEED));
+		cache.get("second", KEY_TYPE.TYPE_SEED);
+		assertEquals(4, cache.getMisses());
+	}
+
+	@Test
+	void expiredKeyRecreated() throws InterruptedException {
+		CryptSymmKeyCache cache = new CryptSymmKeyCache(10, 1);
+		CryptSymmKey key = cache.get("short lived", KEY_TYPE.TYPE_SEED);
+		Thread.sleep(5);
+		assertNotSame(key, cache.get("short lived", KEY_TYPE.TYPE_SEED));
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	void zeroSizeTurnsCachingOff() {
+		CryptSymmKeyCache cache = new CryptSymmKeyCache(0, CryptSymmKeyCache.DEFAULT_TTL);
+		assertNotSame(cache.get("not cached", KEY_TYPE.TYPE_SEED), cache.get("not cached", KEY_TYPE.TYPE_SEED));
+		assertEquals(0, cache.getSize());
+		assertThrows(IllegalArgumentException.class, () -> cache.configure(-1, 0));
+	}
+}
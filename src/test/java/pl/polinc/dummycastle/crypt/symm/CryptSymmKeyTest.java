@@ -0,0 +1,96 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+import pl.polinc.dummycastle.crypt.symm.CryptSymmKey.KEY_TYPE;
+
+class CryptSymmKeyTest {
+
+	// Keys of lengths sharing no, some and all factors with 256
+	private static final String[] KEYS = { "k", "abcdefghi", "0123456789", "KeyOf16Chars!!!!",
+			"A key longer than the minimal size of the schedule of a key.." };
+
+	// Crypts as the library did before the schedule - byte by byte with getKeyAt()
+	static byte[] reference(byte[] data, CryptSymmKey key, int keyPos) {
+		byte[] result = new byte[data.length];
+		for (int i = 0; i < data.length; i++)
+			result[i] = (byte) (data[i] ^ key.getKeyAt(keyPos + i));
+		return result;
+	}
+
+	static byte[] data(int len) {
+		byte[] data = new byte[len];
+		new Random(len).nextBytes(data);
+		return data;
+	}
+
+	@Test
+	void keyStreamMatchesGetKeyAt() {
+		for (KEY_TYPE type : KEY_TYPE.values())
+			for (String keyStr : KEYS) {
+				CryptSymmKey key = new CryptSymmKey(keyStr, type);
+				byte[] keyStream = key.getKeyStream();
+				for (int pos = 0; pos < 3 * keyStream.length; pos++)
+					assertEquals((byte) key.getKeyAt(pos), keyStream[pos % keyStream.length]);
+			}
+	}
+
+	@Test
+	void cryptMatchesReference() {
+		byte[] data = data(10000);
+		for (KEY_TYPE type : KEY_TYPE.values())
+			for (String keyStr : KEYS) {
+				CryptSymmKey key = new CryptSymmKey(keyStr, type);
+				assertArrayEquals(reference(data, key, 0), CryptSymm.encryptStream(data, key));
+				for (int keyPos : new int[] { 1, 255, 256, 4097 })
+					assertArrayEquals(reference(data, key, keyPos), CryptSymm.encryptStreamFrom(data, key, keyPos));
+			}
+	}
+
+	@Test
+	void cryptRoundTrip() {
+		byte[] data = data(5000);
+		CryptSymmKey key = new CryptSymmKey();
+		assertArrayEquals(data, CryptSymm.decryptStream(CryptSymm.encryptStream(data, key), key));
+	}
+
+	@Test
+	void shortCryptKeepsSinglePeriod() {
+		CryptSymmKey key = new CryptSymmKey("0123456789");
+		assertEquals(1280, key.getKeyStream(10).length);
+		assertTrue(key.getKeyStream(2000).length >= 4096);
+	}
+
+	@Test
+	void longKeyHasNoSchedule() throws IOException {
+		StringBuilder keyStr = new StringBuilder();
+		for (int i = 0; i < 1025; i++)
+			keyStr.append((char) ('a' + i % 26));
+		CryptSymmKey key = new CryptSymmKey(keyStr.toString());
+		assertNull(key.getKeyStream());
+
+		byte[] data = data(300000);
+		for (ENGINE_TYPE type : ENGINE_TYPE.values()) {
+			byte[] encrypted = new byte[data.length];
+			CryptEngine.getEngine(type).crypt(data, 0, encrypted, 0, data.length, key, 5);
+			assertArrayEquals(reference(data, key, 5), encrypted);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (CryptSymmOutputStream out = new CryptSymmOutputStream(bytes, key, 5)) {
+			for (int i = 0; i < 1000; i++)
+				out.write(data[i]);
+		}
+		assertArrayEquals(reference(Arrays.copyOf(data, 1000), key, 5), bytes.toByteArray());
+	}
+}
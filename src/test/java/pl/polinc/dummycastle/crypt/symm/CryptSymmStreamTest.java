@@ -0,0 +1,118 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.DummyCastle;
+
+class CryptSymmStreamTest {
+
+	private static final String SEED = "Key of the stream tests";
+	private static final CryptSymmKey KEY = new CryptSymmKey(SEED);
+	private static final int[] CHUNKS = { 1, 3, 64, 1000 };
+
+	@Test
+	void outputStreamMatchesOneShot() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(5000);
+		byte[] expected = CryptSymm.encryptStream(data, KEY);
+		for (int chunk : CHUNKS) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (CryptSymmOutputStream out = new CryptSymmOutputStream(bytes, KEY)) {
+				for (int i = 0; i < data.length; i += chunk)
+					out.write(data, i, Math.min(chunk, data.length - i));
+				assertEquals(data.length, out.getKeyPos());
+			}
+			assertArrayEquals(expected, bytes.toByteArray());
+		}
+	}
+
+	@Test
+	void outputStreamWritesSingleBytes() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(300);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (CryptSymmOutputStream out = new CryptSymmOutputStream(bytes, KEY, 17)) {
+			for (byte b : data)
+				out.write(b);
+		}
+		assertArrayEquals(CryptSymmKeyTest.reference(data, KEY, 17), bytes.toByteArray());
+	}
+
+	@Test
+	void inputStreamMatchesOneShot() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(5000);
+		byte[] encrypted = CryptSymm.encryptStream(data, KEY);
+		for (int chunk : CHUNKS) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (InputStream in = new CryptSymmInputStream(new ByteArrayInputStream(encrypted), KEY)) {
+				byte[] buffer = new byte[chunk];
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					bytes.write(buffer, 0, read);
+			}
+			assertArrayEquals(data, bytes.toByteArray());
+		}
+	}
+
+	@Test
+	void inputStreamReadsSingleBytesAndSkips() throws IOException {
+		byte[] data = CryptSymmKeyTest.data(300);
+		byte[] encrypted = CryptSymm.encryptStream(data, KEY);
+		try (CryptSymmInputStream in = new CryptSymmInputStream(new ByteArrayInputStream(encrypted), KEY)) {
+			assertEquals(data[0], (byte) in.read());
+			assertEquals(100, in.skip(100));
+			assertEquals(101, in.getKeyPos());
+			for (int i = 101; i < data.length; i++)
+				assertEquals(data[i], (byte) in.read());
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	void inputStreamDoesNotSupportMark() {
+		CryptSymmInputStream in = new CryptSymmInputStream(new ByteArrayInputStream(new byte[10]), KEY);
+		assertFalse(in.markSupported());
+		assertThrows(IOException.class, in::reset);
+	}
+
+	@Test
+	void writerMatchesDummyCastle() throws IOException {
+		String text = "Text written to the CryptSymmWriter in a few pieces";
+		StringWriter hex = new StringWriter();
+		try (CryptSymmWriter writer = new CryptSymmWriter(hex, KEY)) {
+			writer.write(text, 0, 10);
+			writer.write(text.charAt(10));
+			writer.write(text.substring(11));
+		}
+		assertEquals(new DummyCastle().genSymmKeyWith(SEED).encryptSymmWith(text).getResult(), hex.toString());
+	}
+
+	@Test
+	void readerDecryptsWriter() throws IOException {
+		String text = "Za\u017c\u00f3\u0142\u0107 - text with non ASCII characters";
+		StringWriter hex = new StringWriter();
+		try (CryptSymmWriter writer = new CryptSymmWriter(hex, KEY, 5, StandardCharsets.UTF_8)) {
+			writer.write(text);
+		}
+		StringBuilder decrypted = new StringBuilder();
+		try (CryptSymmReader reader = new CryptSymmReader(new StringReader(hex.toString()), KEY, 5,
+				StandardCharsets.UTF_8)) {
+			char[] buffer = new char[7];
+			int read;
+			while ((read = reader.read(buffer, 0, buffer.length)) != -1)
+				decrypted.append(buffer, 0, read);
+		}
+		assertEquals(text, decrypted.toString());
+	}
+}
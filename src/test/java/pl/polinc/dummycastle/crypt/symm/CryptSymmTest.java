@@ -0,0 +1,80 @@
+package pl.polinc.dummycastle.crypt.symm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import pl.polinc.dummycastle.crypt.symm.CryptEngine.ENGINE_TYPE;
+
+class CryptSymmTest {
+
+	private static final CryptSymmKey KEY = new CryptSymmKey("Key of the CryptSymm tests");
+
+	@Test
+	void arrayRangeMatchesAllocatingOverload() {
+		byte[] data = CryptSymmKeyTest.data(10000);
+		byte[] expected = CryptSymm.encryptStreamFrom(Arrays.copyOfRange(data, 100, 9100), KEY, 33);
+		byte[] encrypted = new byte[9010];
+		CryptSymm.encryptStream(data, 100, 9000, encrypted, 10, KEY, 33);
+		assertArrayEquals(expected, Arrays.copyOfRange(encrypted, 10, 9010));
+		byte[] decrypted = new byte[9000];
+		CryptSymm.decryptStream(encrypted, 10, 9000, decrypted, 0, KEY, 33);
+		assertArrayEquals(Arrays.copyOfRange(data, 100, 9100), decrypted);
+	}
+
+	@Test
+	void arrayRangeCryptsInPlace() {
+		byte[] data = CryptSymmKeyTest.data(5000);
+		byte[] inPlace = data.clone();
+		CryptSymm.encryptStream(inPlace, 0, inPlace.length, inPlace, 0, KEY, 0);
+		assertArrayEquals(CryptSymm.encryptStream(data, KEY), inPlace);
+	}
+
+	@Test
+	void arrayRangeOutOfBoundsRejected() {
+		byte[] data = new byte[100];
+		assertThrows(IndexOutOfBoundsException.class,
+				() -> CryptSymm.encryptStream(data, 50, 60, new byte[100], 0, KEY, 0));
+		assertThrows(IndexOutOfBoundsException.class,
+				() -> CryptSymm.encryptStream(data, 0, 100, new byte[99], 0, KEY, 0));
+	}
+
+	@Test
+	void buffersMatchArrays() {
+		byte[] data = CryptSymmKeyTest.data(10000);
+		byte[] expected = CryptSymm.encryptStream(data, KEY);
+		for (boolean direct : new boolean[] { false, true }) {
+			ByteBuffer src = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+			src.put(data).flip();
+			ByteBuffer dst = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+			CryptSymm.encryptStream(src, dst, KEY, 0);
+			assertEquals(data.length, src.position());
+			assertEquals(data.length, dst.position());
+			byte[] encrypted = new byte[data.length];
+			dst.flip();
+			dst.get(encrypted);
+			assertArrayEquals(expected, encrypted);
+		}
+	}
+
+	@Test
+	void directBuffersMatchForEveryEngine() {
+		byte[] data = CryptSymmKeyTest.data(3001);
+		byte[] expected = CryptSymm.encryptStreamFrom(data, KEY, 7);
+		for (ENGINE_TYPE type : ENGINE_TYPE.values()) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+			buffer.put(data).flip();
+			// In place, through the buffer path of the engine
+			CryptEngine.getEngine(type).crypt(buffer, buffer, KEY, 7);
+			byte[] encrypted = new byte[data.length];
+			buffer.flip();
+			buffer.get(encrypted);
+			assertArrayEquals(expected, encrypted);
+		}
+	}
+}